@@ -1,11 +1,17 @@
 package core;
 
+import util.Interpolation;
 import util.concurrent.ThreadPool;
 import noise.*;
+import noise.voronoi.CombineFunction;
+import noise.voronoi.DistanceFunction;
 
 /**
  * 
  * Tests the multi threaded generation of noise.
+ * Also checks that multi threaded fills match the default fills exactly,
+ * that world fills of separate chunks line up exactly with a world fill of the whole,
+ * and that fractal fills into quantized and float arrays only round the final values.
  * 
  * @author F4113nb34st
  *
@@ -49,13 +55,153 @@ public class MultiThreadedingTest
 			System.out.println("Average Multi-Threaded Time: " + mtTime);
 			System.out.println("Average Speed Increase: " + ((defTime * 10 / mtTime) / 10D) + "x");
 			
+			//check every multi threaded noise against its default fill
+			for(Noise func : checkFuncs)
+			{
+				System.out.println(func.getClass().getSimpleName() + " Identical: " +
+						fillsIdentical(func, new NoiseArray(noise.getWidth(), noise.getHeight()), new NoiseArray(noise.getWidth(), noise.getHeight())));
+			}
+			
+			//and again into float arrays
+			for(Noise func : checkFuncs)
+			{
+				System.out.println(func.getClass().getSimpleName() + " Float Identical: " +
+						fillsIdentical(func, new FloatNoiseArray(noise.getWidth(), noise.getHeight()), new FloatNoiseArray(noise.getWidth(), noise.getHeight())));
+			}
+			
+			//check every world fill against the same fill in chunks
+			for(Noise func : checkFuncs)
+			{
+				System.out.println(func.getClass().getSimpleName() + " Seamless: " + worldSeamless((WorldNoise)func));
+			}
+			
+			//check fractal fills into quantized and float arrays against the rounded double fill
+			System.out.println("ByteNoiseArray Quantized: " + quantizedIdentical(new ByteNoiseArray(300, 200), new ByteNoiseArray(300, 200)));
+			System.out.println("ShortNoiseArray Quantized: " + quantizedIdentical(new ShortNoiseArray(300, 200), new ShortNoiseArray(300, 200)));
+			System.out.println("FloatNoiseArray Quantized: " + quantizedIdentical(new FloatNoiseArray(300, 200), new FloatNoiseArray(300, 200)));
+			
 		}catch(Exception ex)//catch any exceptions
 		{
 			ex.printStackTrace();
 		}
 	}
 	
+	/**
+	 * Returns true if the default and multi threaded fills of the given noise produce the exact same values.
+	 * @param func The noise to check, must implement MultiThreadedNoise.
+	 * @param serial The array for the default fill.
+	 * @param parallel An array of the same kind and size for the multi threaded fill.
+	 * @return True if identical.
+	 */
+	public static boolean fillsIdentical(Noise func, NoiseArray serial, NoiseArray parallel)
+	{
+		func.fillArray(serial);
+		((MultiThreadedNoise)func).fillMultiThreaded(parallel, pool);
+		
+		//compare bits so NaNs and negative zeros count too
+		for(int x = 0; x < serial.getWidth(); x++)
+		{
+			for(int y = 0; y < serial.getHeight(); y++)
+			{
+				if(Double.doubleToLongBits(serial.get(x, y)) != Double.doubleToLongBits(parallel.get(x, y)))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if world filling the four chunks of an array on their own produces the exact same values as world filling it whole.
+	 * @param func The noise to check.
+	 * @return True if seamless.
+	 */
+	public static boolean worldSeamless(WorldNoise func)
+	{
+		//odd bounds and chunk sizes, so the chunks don't start on cell edges
+		NoiseArray whole = new NoiseArray(300, 200);
+		NoiseArray chunked = new NoiseArray(300, 200);
+		whole.setBounds(-301, 517, -2, 716);
+		chunked.setBounds(-301, 517, -2, 716);
+		func.fillWorld(whole);
+		func.fillWorld(chunked.view(-301, 517, 137, 91));
+		func.fillWorld(chunked.view(-164, 517, 163, 91));
+		func.fillWorld(chunked.view(-301, 608, 137, 109));
+		func.fillWorld(chunked.view(-164, 608, 163, 109));
+		
+		//compare bits so NaNs and negative zeros count too
+		for(int x = whole.minX; x <= whole.maxX; x++)
+		{
+			for(int y = whole.minY; y <= whole.maxY; y++)
+			{
+				if(Double.doubleToLongBits(whole.get(x, y)) != Double.doubleToLongBits(chunked.get(x, y)))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if the default and multi threaded fractal fills into a quantized array produce the exact same values
+	 * as a fractal fill into a double array, quantized afterwards.
+	 * @param quantized The quantized array to fill.
+	 * @param expected An empty array of the same kind and size, to quantize the double fill into.
+	 * @return True if identical.
+	 */
+	public static boolean quantizedIdentical(NoiseArray quantized, NoiseArray expected)
+	{
+		//fractal values are between -1 and 1, map them between 0 and 1
+		NoiseArray doubles = new NoiseArray(quantized.getWidth(), quantized.getHeight());
+		doubles.amplitude = .5;
+		doubles.offset = .5;
+		quantized.amplitude = .5;
+		quantized.offset = .5;
+		noiseFunc.fillArray(doubles);
+		for(int x = 0; x < doubles.getWidth(); x++)
+		{
+			for(int y = 0; y < doubles.getHeight(); y++)
+			{
+				expected.set(x, y, doubles.get(x, y));
+			}
+		}
+		
+		for(int pass = 0; pass < 2; pass++)
+		{
+			if(pass == 0)
+			{
+				noiseFunc.fillArray(quantized);
+			}else
+			{
+				((MultiThreadedNoise)noiseFunc).fillMultiThreaded(quantized, pool);
+			}
+			for(int x = 0; x < quantized.getWidth(); x++)
+			{
+				for(int y = 0; y < quantized.getHeight(); y++)
+				{
+					if(Double.doubleToLongBits(quantized.get(x, y)) != Double.doubleToLongBits(expected.get(x, y)))
+					{
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+	
 	public static final NoiseArray noise = new NoiseArray(1024, 1024);
 	public static final ThreadPool pool = new ThreadPool(Runtime.getRuntime().availableProcessors());
 	public static final Noise noiseFunc = new FractalNoise(0, new PerlinNoise(), 4, 8, .5);
+	public static final Noise[] checkFuncs = 
+	{
+		new BasicNoise(1),
+		new PerlinNoise(1, 16, 16),
+		new LookupPerlinNoise(1, 16, 16),
+		new InterpNoise(1, 16, 16, Interpolation.LINEAR),
+		new InterpNoise(1, 16, 16, Interpolation.CUBIC),
+		new VoronoiNoise(1, 32, 32, DistanceFunction.Euclid, CombineFunction.F2_F1),
+		noiseFunc,
+	};
 }
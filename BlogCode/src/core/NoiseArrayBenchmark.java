@@ -0,0 +1,158 @@
+package core;
+
+import noise.*;
+import noise.voronoi.CombineFunction;
+import noise.voronoi.DistanceFunction;
+import util.Interpolation;
+import util.concurrent.ThreadPool;
+
+/**
+ * 
+ * Compares the default column array layout of NoiseArray against the flat row major layout of FlatNoiseArray
+ * and the 8x8 blocks of BlockedNoiseArray, the double precision FlatNoiseArray against the single precision FloatNoiseArray,
+ * and the heap against the off heap DirectNoiseArray.
+ * Times fills, normalizes (plain and pooled), fractal fills and row order reads (like NoiseDisplayCore) on SIZE x SIZE arrays,
+ * then fills of each generator into the column, row major and blocked layouts on GEN_SIZE x GEN_SIZE arrays.
+ * The fractal fills need room for an array per octave, about 700MB of heap at 4096.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class NoiseArrayBenchmark
+{
+	public static void main(String[] args)
+	{
+		try
+		{
+			//warm up both layouts on smaller arrays first so the JIT has compiled everything
+			run("warmup", new NoiseArray(512, 512), 3);
+			run("warmup", new FlatNoiseArray(512, 512), 3);
+			run("warmup", new FloatNoiseArray(512, 512), 3);
+			run("warmup", new BlockedNoiseArray(512, 512), 3);
+			
+			//only one big array is alive at a time
+			run("NoiseArray", new NoiseArray(SIZE, SIZE), tests);
+			run("BlockedNoiseArray", new BlockedNoiseArray(SIZE, SIZE), tests);
+			NoiseArray doubles = new FlatNoiseArray(SIZE, SIZE);
+			long doubleTime = run("FlatNoiseArray", doubles, tests);
+			long doubleMemory = doubles.memoryUsage();
+			doubles = null;
+			NoiseArray floats = new FloatNoiseArray(SIZE, SIZE);
+			long floatTime = run("FloatNoiseArray", floats, tests);
+			
+			//print what floats gain over doubles
+			System.out.println("Float Memory Saved: " + ((doubleMemory - floats.memoryUsage()) >> 20) + "MB of " + (doubleMemory >> 20) + "MB");
+			System.out.println("Float Speed Increase: " + ((doubleTime * 100 / floatTime) / 100D) + "x");
+			floats = null;
+			
+			DirectNoiseArray direct = new DirectNoiseArray(SIZE, SIZE);
+			run("DirectNoiseArray", direct, tests);
+			direct.close();
+			direct = null;
+			
+			//every generator into each layout
+			runGenerators(new NoiseArray[]{new NoiseArray(GEN_SIZE, GEN_SIZE), new FlatNoiseArray(GEN_SIZE, GEN_SIZE), new BlockedNoiseArray(GEN_SIZE, GEN_SIZE)}, tests);
+		}catch(Exception ex)//catch any exceptions
+		{
+			ex.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Times the given number of fills, normalizes, fractal fills and row order reads on the given array and prints the averages.
+	 * @param name The name to print.
+	 * @param array The array to test.
+	 * @param tests The number of tests to run.
+	 * @return The average total time of one test in ms.
+	 */
+	public static long run(String name, NoiseArray array, int tests)
+	{
+		long fillTime = 0;
+		long normTime = 0;
+		long poolNormTime = 0;
+		long fractalTime = 0;
+		long readTime = 0;
+		double sum = 0;
+		
+		long time;
+		for(int i = 0; i < tests; i++)
+		{
+			time = System.currentTimeMillis();
+			noiseFunc.fillArray(array);
+			fillTime += (System.currentTimeMillis() - time);
+			
+			time = System.currentTimeMillis();
+			array.normalize();
+			normTime += (System.currentTimeMillis() - time);
+			
+			time = System.currentTimeMillis();
+			array.normalize(pool);
+			poolNormTime += (System.currentTimeMillis() - time);
+			
+			time = System.currentTimeMillis();
+			fractalFunc.fillArray(array);
+			fractalTime += (System.currentTimeMillis() - time);
+			
+			//read a row at a time, like the display does
+			time = System.currentTimeMillis();
+			for(int y = 0; y < array.getHeight(); y++)
+			{
+				for(int x = 0; x < array.getWidth(); x++)
+				{
+					sum += array.getRelative(x, y);
+				}
+			}
+			readTime += (System.currentTimeMillis() - time);
+		}
+		
+		//print averages, and the sum so the reads can't be skipped
+		System.out.println(name + " " + array.getWidth() + "x" + array.getHeight() + " (" + (array.memoryUsage() >> 20) + "MB)" +
+				": Fill " + (fillTime / tests) + "ms, Normalize " + (normTime / tests) + "ms, Pooled Normalize " + (poolNormTime / tests) +
+				"ms, Fractal " + (fractalTime / tests) + "ms, Row Reads " + (readTime / tests) + "ms (sum " + (long)sum + ")");
+		return (fillTime + normTime + poolNormTime + fractalTime + readTime) / tests;
+	}
+	
+	/**
+	 * Times the given number of fills of each generator into each of the given arrays and prints the averages.
+	 * Each generator is run once on each array first to warm it up.
+	 * @param arrays The arrays to test, one per layout.
+	 * @param tests The number of tests to run.
+	 */
+	public static void runGenerators(NoiseArray[] arrays, int tests)
+	{
+		for(Noise generator : generators)
+		{
+			StringBuilder line = new StringBuilder(generator.getClass().getSimpleName());
+			for(NoiseArray array : arrays)
+			{
+				generator.fillArray(array);
+				long time = System.currentTimeMillis();
+				for(int i = 0; i < tests; i++)
+				{
+					generator.fillArray(array);
+				}
+				line.append(", ").append(array.getClass().getSimpleName()).append(" ").append((System.currentTimeMillis() - time) / tests).append("ms");
+			}
+			System.out.println(line);
+		}
+	}
+	
+	//the width and height of the arrays
+	public static final int SIZE = 4096;
+	//the number of tests to average over
+	public static final int tests = 5;
+	public static final Noise noiseFunc = new PerlinNoise(0, 64, 64);
+	public static final ThreadPool pool = new ThreadPool(Runtime.getRuntime().availableProcessors());
+	public static final Noise fractalFunc = new FractalNoise(0, new PerlinNoise(), 4, 7, .5);
+	//the width and height of the arrays each generator fills
+	public static final int GEN_SIZE = 1024;
+	public static final Noise[] generators = 
+	{
+		new BasicNoise(0),
+		new PerlinNoise(0, 16, 16),
+		new InterpNoise(0, 16, 16, Interpolation.CUBIC),
+		new VoronoiNoise(0, 32, 32, DistanceFunction.Euclid, CombineFunction.F1),
+		new MidDisNoise(0, 1, .5, false),
+		fractalFunc,
+	};
+}
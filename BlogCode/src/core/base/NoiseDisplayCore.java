@@ -119,10 +119,10 @@ public abstract class NoiseDisplayCore extends SimpleCore implements KeyListener
 			regenDue = false;
 		}
 		
-		//for all pixels
-		for(int i = 0; i < image.getWidth(); i++)
+		//for all pixels, a row at a time to match the image's layout
+		for(int j = 0; j < image.getHeight(); j++)
 		{
-			for(int j = 0; j < image.getHeight(); j++)
+			for(int i = 0; i < image.getWidth(); i++)
 			{
 				//get value
 				double value = noise.get(i, j);
@@ -122,10 +122,10 @@ public abstract class NoiseDisplayCoreWeb extends SimpleApplet implements KeyLis
 			regenDue = false;
 		}
 		
-		//for all pixels
-		for(int i = 0; i < image.getWidth(); i++)
+		//for all pixels, a row at a time to match the image's layout
+		for(int j = 0; j < image.getHeight(); j++)
 		{
-			for(int j = 0; j < image.getHeight(); j++)
+			for(int i = 0; i < image.getWidth(); i++)
 			{
 				//get value
 				double value = noise.get(i, j);
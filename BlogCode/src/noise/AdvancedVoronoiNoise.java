@@ -150,10 +150,14 @@ public final class AdvancedVoronoiNoise extends Noise
 			}
 		}
 		
+		//a column's values, set all at once
+		double[] column = new double[noise.getHeight()];
+		//every value gets written, so a tracked range can start over
+		noise.resetRange();
 		//for each pixe;s
 		for(int x = 0; x < noise.getWidth(); x++)
 		{
-			for(int y = 0; y < noise.getHeight(); y++)
+			for(int y = 0; y < column.length; y++)
 			{
 				//get distances at current pixel
 				double[] values = pixels[x][y];
@@ -166,8 +170,9 @@ public final class AdvancedVoronoiNoise extends Noise
 					}
 				}
 				//set to the combine function's return
-				noise.setRelative(x, y, comFunc.combineFunc(values));
+				column[y] = comFunc.combineFunc(values);
 			}
+			noise.setColumn(x, column);
 		}
 		
 		//always need to normalize Voronoi noise
@@ -10,12 +10,8 @@ import util.concurrent.ThreadPool;
  * @author F4113nb34st
  *
  */
-public final class BasicNoise extends SeededNoise implements MultiThreadedNoise
+public final class BasicNoise extends SeededNoise implements MultiThreadedNoise, WorldNoise
 {
-	/**
-	 * The NoiseGenerator instance for this BasicNoise.
-	 */
-	private NoiseGenerator gen = new NoiseGenerator();
 	
 	/**
 	 * Creates a new BasicNoise with the given seed.
@@ -25,18 +21,90 @@ public final class BasicNoise extends SeededNoise implements MultiThreadedNoise
 	{
 		super(s);
 	}
-
+	
 	@Override
 	public void fillArray(NoiseArray noise)
 	{
-		//for all pixels
-		for(int x = 0; x <= noise.getWidth(); x++)
+		//generate a whole row at once
+		double[] row = new double[noise.getWidth()];
+		int edgeX = edge(row.length, noise.wrapX);
+		//for all rows
+		for(int y = 0; y < noise.getHeight(); y++)
 		{
-			for(int y = 0; y <= noise.getHeight(); y++)
-			{
-				//get to noise value
-				noise.setRelative(x, y, gen.noise_gen(seed, x, y));
-			}
+			int py = sampled(y, noise.getHeight(), noise.wrapY);
+			valueRow(0, py, row, 0, row.length);
+			row[edgeX] = value(row.length, py);
+			//set to noise values
+			noise.setRow(y, row);
+		}
+	}
+	
+	/**
+	 * Returns the column or row the extra sample of the tiled fill lands on.
+	 * The tiled fill has always sampled one column and row past the end, which overwrites the last one when clipped
+	 * and the first one when wrapped. Kept so stored worlds regenerate the same.
+	 * @param size The width or height of the array.
+	 * @param wrap True if the array wraps.
+	 * @return The column or row holding the sample at size.
+	 */
+	private static int edge(int size, boolean wrap)
+	{
+		return wrap ? 0 : size - 1;
+	}
+	
+	/**
+	 * Returns the coord the tiled fill samples for the given column or row.
+	 * @param index The column or row.
+	 * @param size The width or height of the array.
+	 * @param wrap True if the array wraps.
+	 * @return The coord to sample.
+	 */
+	private static int sampled(int index, int size, boolean wrap)
+	{
+		return index == edge(size, wrap) ? size : index;
+	}
+	
+	/**
+	 * Fills the given array with basic noise sampled at the given world coords, so array (0, 0) is world (x, y).
+	 * Always uses the fast hash, since noise_gen saturates far from the origin.
+	 * @param noise The array to fill.
+	 * @param x The world x coord of the array's first column.
+	 * @param y The world y coord of the array's first row.
+	 */
+	public void fillArray(NoiseArray noise, long x, long y)
+	{
+		//generate a whole row at once
+		double[] row = new double[noise.getWidth()];
+		//for all rows
+		for(int j = 0; j < noise.getHeight(); j++)
+		{
+			NoiseGenerator.noise(seed, x, y + j, row, 0, row.length);
+			//set to noise values
+			noise.setRow(j, row);
+		}
+	}
+	
+	@Override
+	public void fillWorld(NoiseArray noise)
+	{
+		fillArray(noise, noise.minX, noise.minY);
+	}
+	
+	/**
+	 * Returns the value world filling gives the whole coords containing the given coords.
+	 */
+	@Override
+	public double sample(double x, double y)
+	{
+		return NoiseGenerator.noise(seed, (long)Math.floor(x), (long)Math.floor(y));
+	}
+	
+	@Override
+	public void sample(double[] xs, double[] ys, double[] dst, int off, int len)
+	{
+		for(int i = off; i < off + len; i++)
+		{
+			dst[i] = sample(xs[i], ys[i]);
 		}
 	}
 	
@@ -63,16 +131,19 @@ public final class BasicNoise extends SeededNoise implements MultiThreadedNoise
 			super(min, max);
 			noise = array;
 		}
-
+		
 		@Override
 		public void run(int x)
 		{
+			double[] column = new double[noise.getHeight()];
+			int px = sampled(x, noise.getWidth(), noise.wrapX);
 			//for all y's in column
-			for(int y = 0; y <= noise.getHeight(); y++)
+			for(int y = 0; y < column.length; y++)
 			{
-				//set to noise value
-				noise.setRelative(x, y, gen.noise_gen(seed, x, y));
+				column[y] = value(px, sampled(y, column.length, noise.wrapY));
 			}
+			//set to noise values
+			noise.setColumn(x, column);
 		}
 	}
 }
@@ -0,0 +1,147 @@
+package noise;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * NoiseArray that stores its values in BLOCK_SIZE x BLOCK_SIZE blocks instead of whole rows or columns.
+ * A row of a block is exactly one 64 byte cache line, so column walks, row walks and 2D neighbourhoods
+ * all stay within a few cache lines instead of favouring one direction.
+ * Blocks are stored one after another, row major, and each block is row major inside.
+ * The array is padded up to whole blocks, the padding is never read.
+ * findRange, rescale and fill walk the values in storage order.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class BlockedNoiseArray extends NoiseArray
+{
+	/**The width and height of a block is 1 << BLOCK_SHIFT.*/
+	public static final int BLOCK_SHIFT = 3;
+	/**The width and height of a block.*/
+	public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	//mask for the position in a block
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	
+	/**The backing array, value (i, j) relative to the mins is at [index(i, j)]. In most case you should not need to access this.*/
+	public double[] data;
+	/**The number of blocks in a row of blocks.*/
+	public int blocksX;
+	
+	/**
+	 * Creates a new BlockedNoiseArray with the given width and height.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	public BlockedNoiseArray(int w, int h)
+	{
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new BlockedNoiseArray with the given mins and maxs.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	public BlockedNoiseArray(int miX, int miY, int maX, int maY)
+	{
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int bx = (getWidth() + BLOCK_MASK) >> BLOCK_SHIFT;
+		int by = (getHeight() + BLOCK_MASK) >> BLOCK_SHIFT;
+		//keep the current blocks while the layout is the same and they still fit
+		if(data == null || bx != blocksX || ((long)bx * by << (BLOCK_SHIFT * 2)) > data.length)
+		{
+			blocksX = bx;
+			data = new double[(bx * by) << (BLOCK_SHIFT * 2)];
+		}
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new BlockedNoiseArray(w, h);
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		return (long)data.length * 8;
+	}
+	
+	/**
+	 * Returns the index in data of the given position relative to the mins.
+	 * @param i The x index, from 0 to width - 1.
+	 * @param j The y index, from 0 to height - 1.
+	 * @return The index.
+	 */
+	public final int index(int i, int j)
+	{
+		int block = ((j >> BLOCK_SHIFT) * blocksX) + (i >> BLOCK_SHIFT);
+		return (block << (BLOCK_SHIFT * 2)) + ((j & BLOCK_MASK) << BLOCK_SHIFT) + (i & BLOCK_MASK);
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return data[index(i, j)];
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		data[index(i, j)] = value;
+	}
+	
+	@Override
+	protected double[] findRange()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int w = getWidth();
+		int h = getHeight();
+		
+		//for all values, find min and max, a block at a time
+		for(int by = 0, block = 0; (by << BLOCK_SHIFT) < h; by++)
+		{
+			int rows = Math.min(BLOCK_SIZE, h - (by << BLOCK_SHIFT));
+			for(int bx = 0; bx < blocksX; bx++, block++)
+			{
+				int cols = Math.min(BLOCK_SIZE, w - (bx << BLOCK_SHIFT));
+				for(int r = 0; r < rows; r++)
+				{
+					for(int index = (block << (BLOCK_SHIFT * 2)) + (r << BLOCK_SHIFT), end = index + cols; index < end; index++)
+					{
+						min = Math.min(min, data[index]);
+						max = Math.max(max, data[index]);
+					}
+				}
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	@Override
+	protected void rescale(double min, double multi)
+	{
+		//padding is never read, so it is rescaled along with the rest
+		int end = ((getHeight() + BLOCK_MASK) >> BLOCK_SHIFT) * blocksX << (BLOCK_SHIFT * 2);
+		for(int index = 0; index < end; index++)
+		{
+			data[index] = (data[index] - min) * multi;
+		}
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		//padding is never read, so it is filled along with the rest
+		Arrays.fill(data, 0, ((getHeight() + BLOCK_MASK) >> BLOCK_SHIFT) * blocksX << (BLOCK_SHIFT * 2), value);
+	}
+}
@@ -0,0 +1,259 @@
+package noise;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+/**
+ * 
+ * NoiseArray that stores its values row major in ByteBuffers outside of the array heap.
+ * A single buffer can only hold 2GB, so the rows are split into bands of a power of 2 rows, each with its own buffer.
+ * The value at (i, j) relative to the mins is stored at index ((j & ((1 << bandShift) - 1)) * stride) + i of band (j >> bandShift).
+ * Subclasses decide where the bands live. Call close when done to release them right away.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public abstract class BufferNoiseArray extends NoiseArray implements Closeable
+{
+	/**The max number of bytes in a band.*/
+	public static final int MAX_BAND_BYTES = 1 << 30;
+	
+	/**The buffers backing the bands, as allocated.*/
+	protected ByteBuffer[] buffers;
+	/**The double views of the buffers, in the same order. In most case you should not need to access this.*/
+	protected DoubleBuffer[] bands;
+	/**The distance between the starts of two rows in a band. At least the width.*/
+	protected int stride;
+	/**The number of rows in a full band is 1 << bandShift.*/
+	protected int bandShift;
+	/**The number of rows the bands hold in total.*/
+	protected int rowCapacity;
+	
+	/**
+	 * Allocates the buffer for a band.
+	 * @param position The position in bytes of the band's first value, from the start of the first band.
+	 * @param bytes The size of the band in bytes.
+	 * @return The buffer, with its byte order set.
+	 */
+	protected abstract ByteBuffer allocate(long position, int bytes);
+	
+	/**
+	 * Releases the given band buffer. The buffer is never used again afterwards.
+	 * @param buffer The buffer to release.
+	 */
+	protected abstract void release(ByteBuffer buffer);
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		//keep the current bands while the rows still fit
+		if(bands == null || w > stride || h > rowCapacity)
+		{
+			free();
+			allocateBands(w, h);
+		}
+	}
+	
+	/**
+	 * Allocates bands for the given width and height.
+	 * @param w The width, also becomes the stride.
+	 * @param h The height.
+	 */
+	protected void allocateBands(int w, int h)
+	{
+		long rowBytes = (long)w * 8;
+		if(rowBytes > MAX_BAND_BYTES)
+		{
+			throw new IllegalArgumentException("Width too large for a band: " + w);
+		}
+		//fit as many rows as possible in a band, rounded down to a power of 2
+		bandShift = 31 - Integer.numberOfLeadingZeros((int)(MAX_BAND_BYTES / rowBytes));
+		int bandRows = 1 << bandShift;
+		int count = (h + bandRows - 1) >> bandShift;
+		
+		stride = w;
+		rowCapacity = h;
+		buffers = new ByteBuffer[count];
+		bands = new DoubleBuffer[count];
+		for(int b = 0; b < count; b++)
+		{
+			//the last band only holds the rows that are left
+			int rows = Math.min(bandRows, h - (b << bandShift));
+			buffers[b] = allocate((long)(b << bandShift) * rowBytes, (int)(rows * rowBytes));
+			bands[b] = buffers[b].asDoubleBuffer();
+		}
+	}
+	
+	/**
+	 * Releases all the bands of this array.
+	 */
+	protected void free()
+	{
+		if(buffers != null)
+		{
+			for(ByteBuffer buffer : buffers)
+			{
+				release(buffer);
+			}
+		}
+		buffers = null;
+		bands = null;
+		stride = 0;
+		rowCapacity = 0;
+	}
+	
+	/**
+	 * Releases the memory of this array. It must not be used afterwards.
+	 */
+	@Override
+	public void close()
+	{
+		free();
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		long bytes = 0;
+		if(buffers != null)
+		{
+			for(ByteBuffer buffer : buffers)
+			{
+				bytes += buffer.capacity();
+			}
+		}
+		return bytes;
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return bands[j >> bandShift].get(((j & ((1 << bandShift) - 1)) * stride) + i);
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		bands[j >> bandShift].put(((j & ((1 << bandShift) - 1)) * stride) + i, value);
+	}
+	
+	@Override
+	public void getRow(int y, double[] dst, int off)
+	{
+		checkRow(y, dst.length, off);
+		DoubleBuffer band = bands[y >> bandShift].duplicate();
+		band.position((y & ((1 << bandShift) - 1)) * stride);
+		band.get(dst, off, getWidth());
+	}
+	
+	@Override
+	public void setRow(int y, double[] src, int off)
+	{
+		checkRow(y, src.length, off);
+		DoubleBuffer band = bands[y >> bandShift];
+		int base = (y & ((1 << bandShift) - 1)) * stride;
+		for(int i = 0; i < getWidth(); i++)
+		{
+			band.put(base + i, (src[off + i] * amplitude) + offset);
+		}
+		trackRow(y);
+	}
+	
+	@Override
+	protected double[] findRange()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int w = getWidth();
+		int h = getHeight();
+		
+		//for all values, find min and max, a row at a time
+		for(int j = 0; j < h; j++)
+		{
+			DoubleBuffer band = bands[j >> bandShift];
+			for(int index = (j & ((1 << bandShift) - 1)) * stride, end = index + w; index < end; index++)
+			{
+				double value = band.get(index);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	@Override
+	protected void rescale(double min, double multi)
+	{
+		int w = getWidth();
+		int h = getHeight();
+		
+		//multiply all values by multi.
+		for(int j = 0; j < h; j++)
+		{
+			DoubleBuffer band = bands[j >> bandShift];
+			for(int index = (j & ((1 << bandShift) - 1)) * stride, end = index + w; index < end; index++)
+			{
+				band.put(index, (band.get(index) - min) * multi);
+			}
+		}
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		int w = getWidth();
+		for(int j = 0; j < getHeight(); j++)
+		{
+			DoubleBuffer band = bands[j >> bandShift];
+			for(int index = (j & ((1 << bandShift) - 1)) * stride, end = index + w; index < end; index++)
+			{
+				band.put(index, value);
+			}
+		}
+	}
+	
+	/**
+	 * Frees the memory of the given direct or mapped buffer right away instead of waiting for the garbage collector.
+	 * Uses the JDK's internal cleaner through reflection, if that fails the buffer is left to the garbage collector.
+	 * @param buffer The buffer to free. Must not be used afterwards.
+	 */
+	protected static void clean(ByteBuffer buffer)
+	{
+		if(buffer == null || !buffer.isDirect())
+		{
+			return;
+		}
+		try
+		{
+			//java 9+, Unsafe.invokeCleaner
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		}catch(Exception ex)//not there, try the old way
+		{
+		}
+		try
+		{
+			//java 7 and 8, DirectBuffer.cleaner().clean()
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if(cleaner != null)
+			{
+				Method cleanMethod = cleaner.getClass().getMethod("clean");
+				cleanMethod.setAccessible(true);
+				cleanMethod.invoke(cleaner);
+			}
+		}catch(Exception ex)//leave it to the garbage collector
+		{
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package noise;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 
+ * NoiseArray that stores its values in direct buffers, off the java heap.
+ * The garbage collector never has to copy or scan the values, so huge arrays do not cause long pauses.
+ * Call close when done to free the memory right away, otherwise it is only freed once the array is collected.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class DirectNoiseArray extends BufferNoiseArray
+{
+	/**
+	 * Creates a new DirectNoiseArray with the given width and height.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	public DirectNoiseArray(int w, int h)
+	{
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new DirectNoiseArray with the given mins and maxs.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	public DirectNoiseArray(int miX, int miY, int maX, int maY)
+	{
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new DirectNoiseArray(w, h);
+	}
+	
+	@Override
+	protected ByteBuffer allocate(long position, int bytes)
+	{
+		//native order so the doubles don't need swapping
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+	
+	@Override
+	protected void release(ByteBuffer buffer)
+	{
+		clean(buffer);
+	}
+}
@@ -0,0 +1,181 @@
+package noise;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * NoiseArray backed by a single row major double array instead of one array per column.
+ * The value at (i, j) relative to the mins is stored at data[(j * stride) + i],
+ * so walking along a row touches consecutive memory.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class FlatNoiseArray extends NoiseArray
+{
+	/**The backing array, value (i, j) relative to the mins is at [(j * stride) + i]. In most case you should not need to access this.*/
+	public double[] data;
+	/**The distance in data between the starts of two rows. At least the width.*/
+	public int stride;
+	
+	/**
+	 * Creates a new FlatNoiseArray with the given width and height.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	public FlatNoiseArray(int w, int h)
+	{
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new FlatNoiseArray with the given mins and maxs.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	public FlatNoiseArray(int miX, int miY, int maX, int maY)
+	{
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		//keep the current stride while the rows still fit
+		if(data == null || w > stride || ((long)h * stride) > data.length)
+		{
+			stride = w;
+			data = new double[w * h];
+		}
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new FlatNoiseArray(w, h);
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		return (long)data.length * 8;
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return data[(j * stride) + i];
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		data[(j * stride) + i] = value;
+	}
+	
+	/**
+	 * Returns the index in data of the first value of the given row.
+	 * @param y The y position relative to minY.
+	 * @return The index of the row.
+	 */
+	public int rowOffset(int y)
+	{
+		return y * stride;
+	}
+	
+	@Override
+	public void getRow(int y, double[] dst, int off)
+	{
+		checkRow(y, dst.length, off);
+		System.arraycopy(data, y * stride, dst, off, getWidth());
+	}
+	
+	@Override
+	public void setRow(int y, double[] src, int off)
+	{
+		checkRow(y, src.length, off);
+		int base = y * stride;
+		for(int i = 0; i < getWidth(); i++)
+		{
+			data[base + i] = (src[off + i] * amplitude) + offset;
+		}
+		trackRow(y);
+	}
+	
+	@Override
+	public void getColumn(int x, double[] dst, int off)
+	{
+		checkColumn(x, dst.length, off);
+		for(int j = 0, index = x; j < getHeight(); j++, index += stride)
+		{
+			dst[off + j] = data[index];
+		}
+	}
+	
+	@Override
+	public void setColumn(int x, double[] src, int off)
+	{
+		checkColumn(x, src.length, off);
+		for(int j = 0, index = x; j < getHeight(); j++, index += stride)
+		{
+			data[index] = (src[off + j] * amplitude) + offset;
+		}
+		trackColumn(x);
+	}
+	
+	@Override
+	protected double[] findRange()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int w = getWidth();
+		int h = getHeight();
+		
+		//for all values, find min and max, a row at a time
+		for(int j = 0; j < h; j++)
+		{
+			for(int index = j * stride, end = index + w; index < end; index++)
+			{
+				min = Math.min(min, data[index]);
+				max = Math.max(max, data[index]);
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	@Override
+	protected void rescale(double min, double multi)
+	{
+		int w = getWidth();
+		int h = getHeight();
+		
+		//multiply all values by multi.
+		for(int j = 0; j < h; j++)
+		{
+			for(int index = j * stride, end = index + w; index < end; index++)
+			{
+				data[index] = (data[index] - min) * multi;
+			}
+		}
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		//rows are contiguous when the stride matches the width
+		if(stride == getWidth())
+		{
+			Arrays.fill(data, 0, getWidth() * getHeight(), value);
+		}else
+		{
+			for(int j = 0; j < getHeight(); j++)
+			{
+				Arrays.fill(data, j * stride, (j * stride) + getWidth(), value);
+			}
+		}
+	}
+}
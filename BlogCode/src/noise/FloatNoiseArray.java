@@ -0,0 +1,190 @@
+package noise;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * NoiseArray that stores its values as floats, in a single row major array like FlatNoiseArray.
+ * Takes half the memory and memory bandwidth of the double arrays,
+ * values are rounded to float precision when stored.
+ * The value at (i, j) relative to the mins is stored at data[(j * stride) + i].
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class FloatNoiseArray extends NoiseArray
+{
+	/**The backing array, value (i, j) relative to the mins is at [(j * stride) + i]. In most case you should not need to access this.*/
+	public float[] data;
+	/**The distance in data between the starts of two rows. At least the width.*/
+	public int stride;
+	
+	/**
+	 * Creates a new FloatNoiseArray with the given width and height.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	public FloatNoiseArray(int w, int h)
+	{
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new FloatNoiseArray with the given mins and maxs.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	public FloatNoiseArray(int miX, int miY, int maX, int maY)
+	{
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		//keep the current stride while the rows still fit
+		if(data == null || w > stride || ((long)h * stride) > data.length)
+		{
+			stride = w;
+			data = new float[w * h];
+		}
+	}
+	
+	/**
+	 * Creates a new FlatNoiseArray, not a FloatNoiseArray.
+	 * Scratch arrays hold partial sums like FractalNoise's octaves, so only the final values written into this array are rounded to floats.
+	 */
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new FlatNoiseArray(w, h);
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		return (long)data.length * 4;
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return data[(j * stride) + i];
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		data[(j * stride) + i] = (float)value;
+	}
+	
+	/**
+	 * Returns the index in data of the first value of the given row.
+	 * @param y The y position relative to minY.
+	 * @return The index of the row.
+	 */
+	public int rowOffset(int y)
+	{
+		return y * stride;
+	}
+	
+	@Override
+	public void getRow(int y, double[] dst, int off)
+	{
+		checkRow(y, dst.length, off);
+		int base = y * stride;
+		for(int i = 0; i < getWidth(); i++)
+		{
+			dst[off + i] = data[base + i];
+		}
+	}
+	
+	@Override
+	public void setRow(int y, double[] src, int off)
+	{
+		checkRow(y, src.length, off);
+		int base = y * stride;
+		for(int i = 0; i < getWidth(); i++)
+		{
+			data[base + i] = (float)((src[off + i] * amplitude) + offset);
+		}
+		trackRow(y);
+	}
+	
+	@Override
+	public void getColumn(int x, double[] dst, int off)
+	{
+		checkColumn(x, dst.length, off);
+		for(int j = 0, index = x; j < getHeight(); j++, index += stride)
+		{
+			dst[off + j] = data[index];
+		}
+	}
+	
+	@Override
+	public void setColumn(int x, double[] src, int off)
+	{
+		checkColumn(x, src.length, off);
+		for(int j = 0, index = x; j < getHeight(); j++, index += stride)
+		{
+			data[index] = (float)((src[off + j] * amplitude) + offset);
+		}
+		trackColumn(x);
+	}
+	
+	@Override
+	protected double[] findRange()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int w = getWidth();
+		int h = getHeight();
+		
+		//for all values, find min and max, a row at a time
+		for(int j = 0; j < h; j++)
+		{
+			for(int index = j * stride, end = index + w; index < end; index++)
+			{
+				min = Math.min(min, data[index]);
+				max = Math.max(max, data[index]);
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	@Override
+	protected void rescale(double min, double multi)
+	{
+		int w = getWidth();
+		int h = getHeight();
+		
+		//multiply all values by multi.
+		for(int j = 0; j < h; j++)
+		{
+			for(int index = j * stride, end = index + w; index < end; index++)
+			{
+				data[index] = (float)((data[index] - min) * multi);
+			}
+		}
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		//rows are contiguous when the stride matches the width
+		if(stride == getWidth())
+		{
+			Arrays.fill(data, 0, getWidth() * getHeight(), (float)value);
+		}else
+		{
+			for(int j = 0; j < getHeight(); j++)
+			{
+				Arrays.fill(data, j * stride, (j * stride) + getWidth(), (float)value);
+			}
+		}
+	}
+}
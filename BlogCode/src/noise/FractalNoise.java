@@ -1,5 +1,6 @@
 package noise;
 
+import java.util.Arrays;
 import util.concurrent.ArrayTask;
 import util.concurrent.ThreadPool;
 
@@ -10,16 +11,8 @@ import util.concurrent.ThreadPool;
  * @author F4113nb34st
  *
  */
-public final class FractalNoise extends SeededNoise implements MultiThreadedNoise
+public final class FractalNoise extends SeededNoise implements MultiThreadedNoise, WorldNoise
 {
-	/**
-	 * The NoiseGenerator instance for this FractalNoise.
-	 */
-	private NoiseGenerator gen = new NoiseGenerator();
-	/**
-	 * The seed of this noise.
-	 */
-	public long seed;
 	/**
 	 * The noise function to use to generate the octaves.
 	 */
@@ -53,54 +46,278 @@ public final class FractalNoise extends SeededNoise implements MultiThreadedNois
 		broadOctave = broad;
 		persistence = persis;
 	}
-
+	
 	@Override
 	public void fillArray(NoiseArray noise)
 	{
-		//create array of octaves
-		NoiseArray[] octaves = new NoiseArray[broadOctave + 1 - fineOctave];
+		fillStreamed(noise);
+	}
+	
+	/**
+	 * Fills the given array with fractal noise sampled at the given world coords, so array (0, 0) is world (x, y).
+	 * Each octave is filled with PeriodicNoise.fillArray(NoiseArray, long, long), so fills at neighbouring coords line up exactly.
+	 * Since they do, the array is filled a band of NoiseArray.STRIP_ROWS rows at a time,
+	 * so only a band of each octave is held however big the array is (like a MappedNoiseArray bigger than the memory).
+	 * @param noise The array to fill.
+	 * @param x The world x coord of the array's first column.
+	 * @param y The world y coord of the array's first row.
+	 */
+	public void fillArray(NoiseArray noise, long x, long y)
+	{
+		int w = noise.getWidth();
+		int h = noise.getHeight();
+		//in the heap whatever the target is, a band is small
+		NoiseArray band = new FlatNoiseArray(w, Math.min(h, NoiseArray.STRIP_ROWS));
+		double[][] sums = new double[band.getHeight()][w];
+		double[] octaveRow = new double[w];
 		
+		for(int start = 0; start < h; start += band.getHeight())
+		{
+			int rows = Math.min(band.getHeight(), h - start);
+			if(rows < band.getHeight())//the last band is shorter
+			{
+				band = new FlatNoiseArray(w, rows);
+			}
+			for(int j = 0; j < rows; j++)
+			{
+				Arrays.fill(sums[j], 0);
+			}
+			//initial amplitude
+			double currentAmp = 1;
+			//amplitude so far
+			double totalAmp = 0;
+			
+			//starting at top octave and going down
+			for(int octave = broadOctave; octave >= fineOctave; octave--)
+			{
+				//generate the octave seed
+				long octaveSeed = (long)(Long.MAX_VALUE * value(octave));
+				//fill the band from noise function with a random seed
+				baseNoise.fillOctave(band, octaveSeed, octave, x, y + start);
+				//increment sums by octave value * currentAmp
+				for(int j = 0; j < rows; j++)
+				{
+					band.getRow(j, octaveRow);
+					for(int i = 0; i < w; i++)
+					{
+						sums[j][i] += octaveRow[i] * currentAmp;
+					}
+				}
+				//increase total amp
+				totalAmp += currentAmp;
+				//modify current amp
+				currentAmp *= persistence;
+			}
+			
+			//normalize the band into the array
+			for(int j = 0; j < rows; j++)
+			{
+				for(int i = 0; i < w; i++)
+				{
+					sums[j][i] /= totalAmp;
+				}
+				noise.setRow(start + j, sums[j]);
+			}
+		}
+	}
+	
+	@Override
+	public void fillWorld(NoiseArray noise)
+	{
+		fillArray(noise, noise.minX, noise.minY);
+	}
+	
+	/**
+	 * Sums the octaves of the base noise at the given coords, the same way the world fill does.
+	 * Does not change the base noise, so it can be sampled from several threads.
+	 */
+	@Override
+	public double sample(double x, double y)
+	{
+		//initial amplitude
+		double currentAmp = 1;
+		//amplitude so far
+		double totalAmp = 0;
+		double sum = 0;
 		//starting at top octave and going down
 		for(int octave = broadOctave; octave >= fineOctave; octave--)
 		{
-			//create new array for octave
-			octaves[octave - fineOctave] = new NoiseArray(noise.getWidth(), noise.getHeight());
 			//generate the octave seed
-			long octaveSeed = (long)(Long.MAX_VALUE * gen.noise_gen(seed, (double)octave));
-			//fill from noise function with a random seed
-			baseNoise.fillArray(octaves[octave - fineOctave], octaveSeed, octave);
+			long octaveSeed = (long)(Long.MAX_VALUE * value(octave));
+			sum += baseNoise.sample(octaveSeed, 1 << octave, 1 << octave, x, y) * currentAmp;
+			//increase total amp
+			totalAmp += currentAmp;
+			//modify current amp
+			currentAmp *= persistence;
+		}
+		return sum / totalAmp;
+	}
+	
+	@Override
+	public void sample(double[] xs, double[] ys, double[] dst, int off, int len)
+	{
+		for(int i = off; i < off + len; i++)
+		{
+			dst[i] = sample(xs[i], ys[i]);
 		}
+	}
+	
+	/**
+	 * Fills the given array one octave at a time, adding each octave into a running sum as soon as it is generated.
+	 * Only the sum and a single octave are held besides the array, instead of every octave,
+	 * so arrays as big as the memory allows (like MappedNoiseArrays) can be filled.
+	 * Adds the octaves in the same order as sumColumn, so the result is exactly the same.
+	 * Works a row at a time, or a column at a time for the column arrays of NoiseArray, so the storage is walked in order.
+	 * @param noise The array to fill.
+	 */
+	private void fillStreamed(NoiseArray noise)
+	{
+		int w = noise.getWidth();
+		int h = noise.getHeight();
+		//both of the same kind as the target, new so the sum starts at 0
+		NoiseArray sum = noise.create(w, h);
+		NoiseArray octaveArray = noise.create(w, h);
+		//true to go a column at a time
+		boolean columns = sum.noise != null;
+		double[] line = new double[columns ? h : w];
+		double[] octaveLine = new double[line.length];
+		//initial amplitude
+		double currentAmp = 1;
+		//amplitude so far
+		double totalAmp = 0;
 		
-		//for all pixels
-		for(int x = 0; x < noise.getWidth(); x++)
+		//starting at top octave and going down
+		for(int octave = broadOctave; octave >= fineOctave; octave--)
 		{
-			for(int y = 0; y < noise.getHeight(); y++)
+			//generate the octave seed
+			long octaveSeed = (long)(Long.MAX_VALUE * value(octave));
+			//fill from noise function with a random seed
+			baseNoise.fillOctave(octaveArray, octaveSeed, octave);
+			//increment sum by octave value * currentAmp
+			for(int k = 0; k < (columns ? w : h); k++)
 			{
-				//init value
-				double value = 0;
-				//initial amplitude
-				double currentAmp = 1;
-				//amplitude so far
-				double totalAmp = 0;
-				//stating at top octave and going down
-				for(int octave = broadOctave; octave >= fineOctave; octave--)
+				getLine(sum, columns, k, line);
+				getLine(octaveArray, columns, k, octaveLine);
+				for(int l = 0; l < line.length; l++)
 				{
-					//increment value by octave value * currentAmp
-					value += octaves[octave - fineOctave].get(x, y) * currentAmp;
-					//increase total amp
-					totalAmp += currentAmp;
-					//modify current amp
-					currentAmp *= persistence;
+					line[l] += octaveLine[l] * currentAmp;
 				}
-				//normalizes the array
-				value /= totalAmp;
-				
-				//set value
-				noise.setRelative(x, y, value);
+				setLine(sum, columns, k, line);
 			}
+			//increase total amp
+			totalAmp += currentAmp;
+			//modify current amp
+			currentAmp *= persistence;
+		}
+		
+		//normalize the sum into the array
+		for(int k = 0; k < (columns ? w : h); k++)
+		{
+			getLine(sum, columns, k, line);
+			for(int l = 0; l < line.length; l++)
+			{
+				line[l] /= totalAmp;
+			}
+			setLine(noise, columns, k, line);
+		}
+		release(new NoiseArray[]{sum, octaveArray});
+	}
+	
+	/**
+	 * Gets the given column or row of the given array.
+	 * @param array The array.
+	 * @param column True for a column, false for a row.
+	 * @param index The column or row.
+	 * @param dst The array to store the values in.
+	 */
+	private static void getLine(NoiseArray array, boolean column, int index, double[] dst)
+	{
+		if(column)
+		{
+			array.getColumn(index, dst);
+		}else
+		{
+			array.getRow(index, dst);
 		}
 	}
 	
+	/**
+	 * Sets the given column or row of the given array.
+	 * @param array The array.
+	 * @param column True for a column, false for a row.
+	 * @param index The column or row.
+	 * @param src The values.
+	 */
+	private static void setLine(NoiseArray array, boolean column, int index, double[] src)
+	{
+		if(column)
+		{
+			array.setColumn(index, src);
+		}else
+		{
+			array.setRow(index, src);
+		}
+	}
+	
+	/**
+	 * Frees the given octaves right away if they hold memory off the heap.
+	 * @param octaves The octaves, not used afterwards.
+	 */
+	private static void release(NoiseArray[] octaves)
+	{
+		for(NoiseArray octave : octaves)
+		{
+			if(octave instanceof BufferNoiseArray)
+			{
+				((BufferNoiseArray)octave).close();
+			}
+		}
+	}
+	
+	/**
+	 * Sums a column of the given octaves into the given array.
+	 * @param noise The array to fill.
+	 * @param octaves The filled octaves.
+	 * @param x The column to sum.
+	 */
+	private void sumColumn(NoiseArray noise, NoiseArray[] octaves, int x)
+	{
+		//the summed values of the column, starting at 0
+		double[] column = new double[noise.getHeight()];
+		//the column of the current octave
+		double[] octaveColumn = new double[column.length];
+		//initial amplitude
+		double currentAmp = 1;
+		//amplitude so far
+		double totalAmp = 0;
+		//stating at top octave and going down
+		for(int octave = broadOctave; octave >= fineOctave; octave--)
+		{
+			octaves[octave - fineOctave].getColumn(x, octaveColumn);
+			//increment values by octave values * currentAmp
+			for(int y = 0; y < column.length; y++)
+			{
+				column[y] += octaveColumn[y] * currentAmp;
+			}
+			//increase total amp
+			totalAmp += currentAmp;
+			//modify current amp
+			currentAmp *= persistence;
+		}
+		//normalizes the values
+		for(int y = 0; y < column.length; y++)
+		{
+			column[y] /= totalAmp;
+		}
+		
+		//set values
+		noise.setColumn(x, column);
+	}
+	
+	/**
+	 * Fills the given array using the given pool. Generates all octaves at once, one task each,
+	 * so unlike fillArray it holds every octave in memory until they are summed.
+	 */
 	public void fillMultiThreaded(NoiseArray noise, ThreadPool pool)
 	{
 		//create array of octaves
@@ -109,10 +326,10 @@ public final class FractalNoise extends SeededNoise implements MultiThreadedNois
 		//starting at top octave and going down
 		for(int octave = broadOctave; octave >= fineOctave; octave--)
 		{
-			//create new array for octave
-			octaves[octave - fineOctave] = new NoiseArray(noise.getWidth(), noise.getHeight());
+			//create new array for octave, of the same kind as the target
+			octaves[octave - fineOctave] = noise.create(noise.getWidth(), noise.getHeight());
 			//generate the octave seed
-			long octaveSeed = (long)(Long.MAX_VALUE * gen.noise_gen(seed, (double)octave));
+			long octaveSeed = (long)(Long.MAX_VALUE * value(octave));
 			//fill from noise function with a random seed
 			addBaseNoiseFillTask(pool, noise, octaves, octave, octaveSeed);
 		}
@@ -120,6 +337,7 @@ public final class FractalNoise extends SeededNoise implements MultiThreadedNois
 		
 		pool.addGlobalTask(new ColumnTask(noise, octaves, 0, noise.getWidth() - 1));
 		pool.startAndWait();
+		release(octaves);
 	}
 	
 	private void addBaseNoiseFillTask(ThreadPool pool, final NoiseArray noise, final NoiseArray[] octaves, final int octave, final long octaveSeed)
@@ -130,7 +348,7 @@ public final class FractalNoise extends SeededNoise implements MultiThreadedNois
 			public void run()
 			{
 				
-				baseNoise.copy().fillArray(octaves[octave - fineOctave], octaveSeed, octave);
+				baseNoise.copy().fillOctave(octaves[octave - fineOctave], octaveSeed, octave);
 			}
 		});
 	}
@@ -151,35 +369,11 @@ public final class FractalNoise extends SeededNoise implements MultiThreadedNois
 			noise = array;
 			octaves = octs;
 		}
-
+		
 		@Override
 		public void run(int x)
 		{
-			//for all y's in column
-			for(int y = 0; y < noise.getHeight(); y++)
-			{
-				//init value
-				double value = 0;
-				//initial amplitude
-				double currentAmp = 1;
-				//amplitude so far
-				double totalAmp = 0;
-				//stating at top octave and going down
-				for(int octave = broadOctave; octave >= fineOctave; octave--)
-				{
-					//increment value by octave value * currentAmp
-					value += octaves[octave - fineOctave].get(x, y) * currentAmp;
-					//increase total amp
-					totalAmp += currentAmp;
-					//modify current amp
-					currentAmp *= persistence;
-				}
-				//normalizes the array
-				value /= totalAmp;
-				
-				//set value
-				noise.setRelative(x, y, value);
-			}
+			sumColumn(noise, octaves, x);
 		}
 	}
 }
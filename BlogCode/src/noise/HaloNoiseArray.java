@@ -0,0 +1,151 @@
+package noise;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * NoiseArray with a ghost border of halo values around it, for stencils that read past the edges.
+ * The border holds copies of the values wrap or clip would read there,
+ * so getHalo can read up to halo positions past any edge with a plain indexed load instead of fixing the position.
+ * Writes only change the values inside the bounds, call refreshHalo after each pass of writes to bring the border up to date.
+ * Values are stored by column like NoiseArray, the value at (i, j) relative to the mins is at data[i + halo][j + halo].
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class HaloNoiseArray extends NoiseArray
+{
+	/**The width of the border on every side.*/
+	public final int halo;
+	/**The backing array including the border, value (i, j) relative to the mins is at [i + halo][j + halo]. In most case you should not need to access this.*/
+	public double[][] data;
+	
+	/**
+	 * Creates a new HaloNoiseArray with the given width, height and border width.
+	 * @param w The width.
+	 * @param h The height.
+	 * @param hal The width of the border.
+	 */
+	public HaloNoiseArray(int w, int h, int hal)
+	{
+		halo = hal;
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new HaloNoiseArray with the given mins, maxs and border width.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 * @param hal The width of the border.
+	 */
+	public HaloNoiseArray(int miX, int miY, int maX, int maY, int hal)
+	{
+		halo = hal;
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int w = getWidth() + (halo * 2);
+		int h = getHeight() + (halo * 2);
+		//the border must stay the same width, so the array must match exactly
+		if(data == null || data.length != w || data[0].length != h)
+		{
+			data = new double[w][h];
+		}
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new HaloNoiseArray(w, h, halo);
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		return (long)data.length * data[0].length * 8;
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return data[i + halo][j + halo];
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		data[i + halo][j + halo] = value;
+	}
+	
+	/**
+	 * Returns the value at the given position relative to the mins without fixing it.
+	 * Positions in the border read the value wrap or clip gives as of the last refreshHalo.
+	 * @param i The x position relative to minX, from -halo to width + halo - 1.
+	 * @param j The y position relative to minY, from -halo to height + halo - 1.
+	 * @return The value at the position.
+	 */
+	public final double getHalo(int i, int j)
+	{
+		return data[i + halo][j + halo];
+	}
+	
+	/**
+	 * Copies into the border the values that wrap or clip would read there, following wrapX and wrapY.
+	 * Call after each pass of writes and before reading the border.
+	 */
+	public void refreshHalo()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		//the top and bottom of every column first
+		for(int i = 0; i < w; i++)
+		{
+			double[] column = data[i + halo];
+			for(int j = 1; j <= halo; j++)
+			{
+				column[halo - j] = column[fix(minY - j, minY, maxY, wrapY) - minY + halo];
+				column[halo + h - 1 + j] = column[fix(maxY + j, minY, maxY, wrapY) - minY + halo];
+			}
+		}
+		//then whole columns, so the corners come along
+		for(int i = 1; i <= halo; i++)
+		{
+			System.arraycopy(data[fix(minX - i, minX, maxX, wrapX) - minX + halo], 0, data[halo - i], 0, h + (halo * 2));
+			System.arraycopy(data[fix(maxX + i, minX, maxX, wrapX) - minX + halo], 0, data[halo + w - 1 + i], 0, h + (halo * 2));
+		}
+	}
+	
+	@Override
+	public void getColumn(int x, double[] dst, int off)
+	{
+		checkColumn(x, dst.length, off);
+		System.arraycopy(data[x + halo], halo, dst, off, getHeight());
+	}
+	
+	@Override
+	public void setColumn(int x, double[] src, int off)
+	{
+		checkColumn(x, src.length, off);
+		double[] column = data[x + halo];
+		for(int j = 0; j < getHeight(); j++)
+		{
+			column[halo + j] = (src[off + j] * amplitude) + offset;
+		}
+		trackColumn(x);
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		//the border is filled too, so it is already up to date
+		for(double[] column : data)
+		{
+			Arrays.fill(column, value);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package noise;
 
 import util.Interpolation;
+import util.Util;
 import util.concurrent.ArrayTask;
 import util.concurrent.ThreadPool;
 
@@ -49,7 +50,9 @@ public final class InterpNoise extends PeriodicNoise implements MultiThreadedNoi
 	@Override
 	public PeriodicNoise copy()
 	{
-		return new InterpNoise(seed, periodX, periodY, interp);
+		PeriodicNoise copy = new InterpNoise(seed, periodX, periodY, interp);
+		copy.fastHash = fastHash;
+		return copy;
 	}
 
 	@Override
@@ -58,187 +61,135 @@ public final class InterpNoise extends PeriodicNoise implements MultiThreadedNoi
 		//calculate the base width and height (no need to calculate more values than this in base array)
 		int baseW = (int)Math.ceil(noise.getWidth() / (double)periodX);
 		int baseH = (int)Math.ceil(noise.getHeight() / (double)periodY);
-		//create our base noise array
-		NoiseArray baseNoise = new NoiseArray(baseW, baseH);
+		//create our base noise array, with room for the past and future neighbours past the edges
+		HaloNoiseArray baseNoise = new HaloNoiseArray(baseW, baseH, 2);
 		//update basic's seed
 		basic.seed = seed;
-		//fill with basic noise
+		basic.fastHash = fastHash;
+		//fill with basic noise, and wrap it into the border
 		basic.fillArray(baseNoise);
+		baseNoise.refreshHalo();
 		
-		//if only needs top and bottom values
-		if(!interp.extended())
-		{
-			//for all columns
-			for(int x = 0; x < noise.getWidth(); x++)
-			{
-				//get botX
-				int bottomX = (int)(x / periodX);
-				//get topX
-				int topX = bottomX + 1;
-				//get blend part for x
-				double blendX = (x % periodX) / (double)periodX;
-				
-				//for all rows
-				for(int y = 0; y < noise.getHeight(); y++)
-				{
-					//get botY
-					int bottomY = (int)(y / periodY);
-					//get topY
-					int topY = bottomY + 1;
-					//get blend part for y
-					double blendY = (y % periodY) / (double)periodY;
-					
-					//interp between xbots and xtops
-					double xBotInterp = interp.interpolate(baseNoise.get(bottomX, bottomY), baseNoise.get(bottomX, topY), blendY);
-					double xTopInterp = interp.interpolate(baseNoise.get(topX, bottomY), baseNoise.get(topX, topY), blendY);
-					
-					//interp interps
-					noise.setRelative(x, y, interp.interpolate(xBotInterp, xTopInterp, blendX));
-				}
-			}
-		}else//we need past and future values too
+		//for all columns
+		for(int x = 0; x < noise.getWidth(); x++)
 		{
-			//for all columns
-			for(int x = 0; x < noise.getWidth(); x++)
-			{
-				//get botX
-				int bottomX = (int)(x / periodX);
-				//get topX
-				int topX = bottomX + 1;
-				//get pastX
-				int pastX = bottomX - 1;
-				//get futureX
-				int futureX = topX + 1;
-				//get blend part for x
-				double blendX = (x % periodX) / (double)periodX;
-				
-				for(int y = 0; y < noise.getHeight(); y++)
-				{
-					//get botY
-					int bottomY = (int)(y / periodY);
-					//get topY
-					int topY = bottomY + 1;
-					//get pastY
-					int pastY = bottomY - 1;
-					//get futureY
-					int futureY = topY + 1;
-					//get blend part for y
-					double blendY = (y % periodY) / (double)periodY;
-					
-					//interp between xbots, xtops, xpasts, and xfutures
-					double xPastInterp = interp.interpolate(baseNoise.get(pastX, pastY), baseNoise.get(pastX, bottomY), baseNoise.get(pastX, topY), baseNoise.get(pastX, futureY), blendY);
-					double xBotInterp = interp.interpolate(baseNoise.get(bottomX, pastY), baseNoise.get(bottomX, bottomY), baseNoise.get(bottomX, topY), baseNoise.get(bottomX, futureY), blendY);
-					double xTopInterp = interp.interpolate(baseNoise.get(topX, pastY), baseNoise.get(topX, bottomY), baseNoise.get(topX, topY), baseNoise.get(topX, futureY), blendY);
-					double xFutureInterp = interp.interpolate(baseNoise.get(futureX, pastY), baseNoise.get(futureX, bottomY), baseNoise.get(futureX, topY), baseNoise.get(futureX, futureY), blendY);
-					
-					//interp interps
-					noise.setRelative(x, y, interp.interpolate(xPastInterp, xBotInterp, xTopInterp, xFutureInterp, blendX));
-				}
-			}
+			fillColumn(noise, baseNoise, 0, 0, 0, x);
 		}
 	}
 	
-	public void fillMultiThreaded(NoiseArray noise, ThreadPool pool)
+	@Override
+	public void fillArray(NoiseArray noise, long x, long y)
 	{
-		//calculate the base width and height (no need to calculate more values than this in base array)
-		int baseW = (int)Math.ceil(noise.getWidth() / (double)periodX);
-		int baseH = (int)Math.ceil(noise.getHeight() / (double)periodY);
-		//create our base noise array
-		NoiseArray baseNoise = new NoiseArray(baseW, baseH);
+		//the base array covers every cell the array touches, plus one past and two future neighbours
+		long cellX = Util.floorDiv(x, periodX);
+		long cellY = Util.floorDiv(y, periodY);
+		int baseW = (int)(Util.floorDiv(x + noise.getWidth() - 1, periodX) - cellX) + 4;
+		int baseH = (int)(Util.floorDiv(y + noise.getHeight() - 1, periodY) - cellY) + 4;
+		//create our base noise array, the neighbours are already inside so it needs no border
+		HaloNoiseArray baseNoise = new HaloNoiseArray(baseW, baseH, 0);
 		//update basic's seed
 		basic.seed = seed;
-		//fill with basic noise
-		basic.fillMultiThreaded(baseNoise, pool);
+		//fill with basic noise, starting at the past neighbour of the first cell
+		basic.fillArray(baseNoise, cellX - 1, cellY - 1);
+		
+		//for all columns
+		for(int i = 0; i < noise.getWidth(); i++)
+		{
+			fillColumn(noise, baseNoise, x, y, 1, i);
+		}
+	}
+	
+	@Override
+	protected double sample(long s, int px, int py, double x, double y)
+	{
+		//get the cells and blend parts
+		long bottomX = cell(x, px);
+		long bottomY = cell(y, py);
+		double blendX = frac(x, bottomX, px);
+		double blendY = frac(y, bottomY, py);
+		long topX = bottomX + 1;
+		long topY = bottomY + 1;
 		
 		//if only needs top and bottom values
 		if(!interp.extended())
 		{
-			pool.addGlobalTask(new ColumnTask(noise, baseNoise, 0, noise.getWidth() - 1));
-		}else//we need past and future values too
-		{
-			pool.addGlobalTask(new ExtendedColumnTask(noise, baseNoise, 0, noise.getWidth() - 1));
+			//interp between xbots and xtops, the cell values are the world fill's basic noise
+			double xBotInterp = interp.interpolate(NoiseGenerator.noise(s, bottomX, bottomY), NoiseGenerator.noise(s, bottomX, topY), blendY);
+			double xTopInterp = interp.interpolate(NoiseGenerator.noise(s, topX, bottomY), NoiseGenerator.noise(s, topX, topY), blendY);
+			return interp.interpolate(xBotInterp, xTopInterp, blendX);
 		}
-		pool.startAndWait();
+		
+		//we need past and future values too
+		long pastX = bottomX - 1;
+		long futureX = topX + 1;
+		long pastY = bottomY - 1;
+		long futureY = topY + 1;
+		double xPastInterp = interp.interpolate(NoiseGenerator.noise(s, pastX, pastY), NoiseGenerator.noise(s, pastX, bottomY), NoiseGenerator.noise(s, pastX, topY), NoiseGenerator.noise(s, pastX, futureY), blendY);
+		double xBotInterp = interp.interpolate(NoiseGenerator.noise(s, bottomX, pastY), NoiseGenerator.noise(s, bottomX, bottomY), NoiseGenerator.noise(s, bottomX, topY), NoiseGenerator.noise(s, bottomX, futureY), blendY);
+		double xTopInterp = interp.interpolate(NoiseGenerator.noise(s, topX, pastY), NoiseGenerator.noise(s, topX, bottomY), NoiseGenerator.noise(s, topX, topY), NoiseGenerator.noise(s, topX, futureY), blendY);
+		double xFutureInterp = interp.interpolate(NoiseGenerator.noise(s, futureX, pastY), NoiseGenerator.noise(s, futureX, bottomY), NoiseGenerator.noise(s, futureX, topY), NoiseGenerator.noise(s, futureX, futureY), blendY);
+		return interp.interpolate(xPastInterp, xBotInterp, xTopInterp, xFutureInterp, blendX);
 	}
 	
 	/**
-	 * Task that calculates interpolated noise columns.
+	 * Fills a column of the given array with interpolated noise.
+	 * @param noise The array to fill.
+	 * @param baseNoise The base noise to interpolate.
+	 * @param originX The world x coord of the array's first column.
+	 * @param originY The world y coord of the array's first row.
+	 * @param offset The position in baseNoise of the cell containing the world origin.
+	 * @param x The column to fill.
 	 */
-	private class ColumnTask extends ArrayTask
+	private void fillColumn(NoiseArray noise, HaloNoiseArray baseNoise, long originX, long originY, int offset, int x)
 	{
-		private final NoiseArray noise;
-		private final NoiseArray baseNoise;
+		//find the world x
+		long worldX = originX + x;
+		//get botX
+		int bottomX = (int)(Util.floorDiv(worldX, periodX) - Util.floorDiv(originX, periodX)) + offset;
+		//get topX
+		int topX = bottomX + 1;
+		//get blend part for x
+		double blendX = Util.floorMod(worldX, periodX) / (double)periodX;
+		//find the first cell's y
+		long cellY = Util.floorDiv(originY, periodY) - offset;
+		//the column's values, set all at once
+		double[] column = new double[noise.getHeight()];
 		
-		private ColumnTask(NoiseArray array, NoiseArray base, int min, int max)
-		{
-			super(min, max);
-			noise = array;
-			baseNoise = base;
-		}
-
-		@Override
-		public void run(int x)
+		//if only needs top and bottom values
+		if(!interp.extended())
 		{
-			//get botX
-			int bottomX = (int)(x / periodX);
-			//get topX
-			int topX = bottomX + 1;
-			//get blend part for x
-			double blendX = (x % periodX) / (double)periodX;
-			
 			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
+			for(int y = 0; y < column.length; y++)
 			{
+				//find the world y
+				long worldY = originY + y;
 				//get botY
-				int bottomY = (int)(y / periodY);
+				int bottomY = (int)(Util.floorDiv(worldY, periodY) - cellY);
 				//get topY
 				int topY = bottomY + 1;
 				//get blend part for y
-				double blendY = (y % periodY) / (double)periodY;
+				double blendY = Util.floorMod(worldY, periodY) / (double)periodY;
 				
 				//interp between xbots and xtops
-				double xBotInterp = interp.interpolate(baseNoise.get(bottomX, bottomY), baseNoise.get(bottomX, topY), blendY);
-				double xTopInterp = interp.interpolate(baseNoise.get(topX, bottomY), baseNoise.get(topX, topY), blendY);
+				double xBotInterp = interp.interpolate(baseNoise.getHalo(bottomX, bottomY), baseNoise.getHalo(bottomX, topY), blendY);
+				double xTopInterp = interp.interpolate(baseNoise.getHalo(topX, bottomY), baseNoise.getHalo(topX, topY), blendY);
 				
 				//interp interps
-				noise.setRelative(x, y, interp.interpolate(xBotInterp, xTopInterp, blendX));
+				column[y] = interp.interpolate(xBotInterp, xTopInterp, blendX);
 			}
-		}
-	}
-	
-	/**
-	 * Task that calculates extended interpolated noise columns.
-	 */
-	private class ExtendedColumnTask extends ArrayTask
-	{
-		private final NoiseArray noise;
-		private final NoiseArray baseNoise;
-		
-		private ExtendedColumnTask(NoiseArray array, NoiseArray base, int min, int max)
-		{
-			super(min, max);
-			noise = array;
-			baseNoise = base;
-		}
-
-		@Override
-		public void run(int x)
+		}else//we need past and future values too
 		{
-			//get botX
-			int bottomX = (int)(x / periodX);
-			//get topX
-			int topX = bottomX + 1;
 			//get pastX
 			int pastX = bottomX - 1;
 			//get futureX
 			int futureX = topX + 1;
-			//get blend part for x
-			double blendX = (x % periodX) / (double)periodX;
 			
-			for(int y = 0; y < noise.getHeight(); y++)
+			for(int y = 0; y < column.length; y++)
 			{
+				//find the world y
+				long worldY = originY + y;
 				//get botY
-				int bottomY = (int)(y / periodY);
+				int bottomY = (int)(Util.floorDiv(worldY, periodY) - cellY);
 				//get topY
 				int topY = bottomY + 1;
 				//get pastY
@@ -246,17 +197,58 @@ public final class InterpNoise extends PeriodicNoise implements MultiThreadedNoi
 				//get futureY
 				int futureY = topY + 1;
 				//get blend part for y
-				double blendY = (y % periodY) / (double)periodY;
+				double blendY = Util.floorMod(worldY, periodY) / (double)periodY;
 				
 				//interp between xbots, xtops, xpasts, and xfutures
-				double xPastInterp = interp.interpolate(baseNoise.get(pastX, pastY), baseNoise.get(pastX, bottomY), baseNoise.get(pastX, topY), baseNoise.get(pastX, futureY), blendY);
-				double xBotInterp = interp.interpolate(baseNoise.get(bottomX, pastY), baseNoise.get(bottomX, bottomY), baseNoise.get(bottomX, topY), baseNoise.get(bottomX, futureY), blendY);
-				double xTopInterp = interp.interpolate(baseNoise.get(topX, pastY), baseNoise.get(topX, bottomY), baseNoise.get(topX, topY), baseNoise.get(topX, futureY), blendY);
-				double xFutureInterp = interp.interpolate(baseNoise.get(futureX, pastY), baseNoise.get(futureX, bottomY), baseNoise.get(futureX, topY), baseNoise.get(futureX, futureY), blendY);
+				double xPastInterp = interp.interpolate(baseNoise.getHalo(pastX, pastY), baseNoise.getHalo(pastX, bottomY), baseNoise.getHalo(pastX, topY), baseNoise.getHalo(pastX, futureY), blendY);
+				double xBotInterp = interp.interpolate(baseNoise.getHalo(bottomX, pastY), baseNoise.getHalo(bottomX, bottomY), baseNoise.getHalo(bottomX, topY), baseNoise.getHalo(bottomX, futureY), blendY);
+				double xTopInterp = interp.interpolate(baseNoise.getHalo(topX, pastY), baseNoise.getHalo(topX, bottomY), baseNoise.getHalo(topX, topY), baseNoise.getHalo(topX, futureY), blendY);
+				double xFutureInterp = interp.interpolate(baseNoise.getHalo(futureX, pastY), baseNoise.getHalo(futureX, bottomY), baseNoise.getHalo(futureX, topY), baseNoise.getHalo(futureX, futureY), blendY);
 				
 				//interp interps
-				noise.setRelative(x, y, interp.interpolate(xPastInterp, xBotInterp, xTopInterp, xFutureInterp, blendX));
+				column[y] = interp.interpolate(xPastInterp, xBotInterp, xTopInterp, xFutureInterp, blendX);
 			}
 		}
+		noise.setColumn(x, column);
+	}
+	
+	public void fillMultiThreaded(NoiseArray noise, ThreadPool pool)
+	{
+		//calculate the base width and height (no need to calculate more values than this in base array)
+		int baseW = (int)Math.ceil(noise.getWidth() / (double)periodX);
+		int baseH = (int)Math.ceil(noise.getHeight() / (double)periodY);
+		//create our base noise array, with room for the past and future neighbours past the edges
+		HaloNoiseArray baseNoise = new HaloNoiseArray(baseW, baseH, 2);
+		//update basic's seed
+		basic.seed = seed;
+		basic.fastHash = fastHash;
+		//fill with basic noise, and wrap it into the border
+		basic.fillMultiThreaded(baseNoise, pool);
+		baseNoise.refreshHalo();
+		
+		pool.addGlobalTask(new ColumnTask(noise, baseNoise, 0, noise.getWidth() - 1));
+		pool.startAndWait();
+	}
+	
+	/**
+	 * Task that calculates interpolated noise columns.
+	 */
+	private class ColumnTask extends ArrayTask
+	{
+		private final NoiseArray noise;
+		private final HaloNoiseArray baseNoise;
+		
+		private ColumnTask(NoiseArray array, HaloNoiseArray base, int min, int max)
+		{
+			super(min, max);
+			noise = array;
+			baseNoise = base;
+		}
+
+		@Override
+		public void run(int x)
+		{
+			fillColumn(noise, baseNoise, 0, 0, 0, x);
+		}
 	}
 }
@@ -2,6 +2,7 @@ package noise;
 
 import util.FastMath;
 import util.Interpolation;
+import util.Util;
 import util.concurrent.ArrayTask;
 import util.concurrent.ThreadPool;
 
@@ -30,10 +31,6 @@ public final class LookupPerlinNoise extends PeriodicNoise implements MultiThrea
 			gradients[index][1] = FastMath.sin(theta);
 		}
 	}
-	/**
-	 * The NoiseGenerator instance for this PerlinNoise.
-	 */
-	private NoiseGenerator gen = new NoiseGenerator();
 	
 	/**
 	 * Creates a new PerlinNoise
@@ -57,66 +54,188 @@ public final class LookupPerlinNoise extends PeriodicNoise implements MultiThrea
 	@Override
 	public PeriodicNoise copy()
 	{
-		return new LookupPerlinNoise(seed, periodX, periodY);
+		PeriodicNoise copy = new LookupPerlinNoise(seed, periodX, periodY);
+		copy.fastHash = fastHash;
+		return copy;
 	}
 	
 	@Override
 	public void fillArray(NoiseArray noise)
 	{
-		//generate the permutation table (array of 0-127 shuffled)
+		//look up the gradient of every cell
+		int[][] cells = getCellMap(noise, getPermutation());
+		
+		//for all columns
+		for(int x = 0; x < noise.getWidth(); x++)
+		{
+			fillColumn(noise, cells, 0, 0, x);
+		}
+	}
+	
+	@Override
+	public void fillArray(NoiseArray noise, long x, long y)
+	{
+		//hash the gradient of every cell the array touches, plus the top neighbours of the last ones
+		long cellX = Util.floorDiv(x, periodX);
+		long cellY = Util.floorDiv(y, periodY);
+		int baseW = (int)(Util.floorDiv(x + noise.getWidth() - 1, periodX) - cellX) + 2;
+		int baseH = (int)(Util.floorDiv(y + noise.getHeight() - 1, periodY) - cellY) + 2;
+		int[][] cells = new int[baseW][baseH];
+		double[] row = new double[baseW];
+		for(int j = 0; j < baseH; j++)
+		{
+			NoiseGenerator.noise(seed, cellX, cellY + j, row, 0, baseW);
+			for(int i = 0; i < baseW; i++)
+			{
+				cells[i][j] = (int)(row[i] * gradients.length);
+			}
+		}
+		
+		//for all columns
+		for(int i = 0; i < noise.getWidth(); i++)
+		{
+			fillColumn(noise, cells, x, y, i);
+		}
+	}
+	
+	/**
+	 * Generates the permutation table (array of 0-127 shuffled).
+	 * @return The permutation table.
+	 */
+	private int[] getPermutation()
+	{
 		int[] permutation = new int[128];
-		int permMask = permutation.length - 1;
 		for(int i = 0; i < permutation.length; i++)
 		{
 			permutation[i] = i;
 		}
+		//draw all the swap targets in one batch
+		double[] draws = new double[permutation.length];
+		valueRow(0, draws, 0, draws.length);
 		for(int i = 0; i < permutation.length; i++)
 		{
-			int index = (int)(gen.noise_gen(seed, i) * permutation.length);
+			int index = (int)(draws[i] * permutation.length);
 			int value = permutation[i];
 			
 			permutation[i] = permutation[index];
 			permutation[index] = value;
 		}
-		
-		//for all columns
-		for(int x = 0; x < noise.getWidth(); x++)
+		return permutation;
+	}
+	
+	/**
+	 * Looks up the gradient index of every cell touched by the given array through the given permutation table.
+	 * @param noise The array that will be filled.
+	 * @param permutation The permutation table.
+	 * @return The gradient indices, with an extra column and row for the top neighbours.
+	 */
+	private int[][] getCellMap(NoiseArray noise, int[] permutation)
+	{
+		int permMask = permutation.length - 1;
+		int baseW = ((noise.getWidth() - 1) / periodX) + 2;
+		int baseH = ((noise.getHeight() - 1) / periodY) + 2;
+		int[][] cells = new int[baseW][baseH];
+		for(int i = 0; i < baseW; i++)
 		{
-			//find botX
-			int botX = x / periodX;
-			//find topX
-			int topX = botX + 1;
-			//find x fraction portion
-			double fracX = (x % (double)periodX) / periodX;
-			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
+			for(int j = 0; j < baseH; j++)
 			{
-				//find botY
-				int botY = y / periodY;
-				//find topY
-				int topY = botY + 1;
-				//find y fraction portion
-				double fracY = (y % (double)periodY) / periodY;
-				
-				//find values for x's and y's
-				double valBXBY = dotProduct(gradients[permutation[(botX + permutation[botY & permMask]) & permMask] & gradMask], fracX, fracY);
-				double valTXBY = dotProduct(gradients[permutation[(topX + permutation[botY & permMask]) & permMask] & gradMask], fracX - 1D, fracY);
-				double valBXTY = dotProduct(gradients[permutation[(botX + permutation[topY & permMask]) & permMask] & gradMask], fracX, fracY - 1D);
-				double valTXTY = dotProduct(gradients[permutation[(topX + permutation[topY & permMask]) & permMask] & gradMask], fracX - 1D, fracY - 1D);
-				
-				//fade fracs
-				double newFracX = fade(fracX);
-				double newFracY = fade(fracY);
-				
-				//perform y interps
-				double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
-				double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
-				
-				//set value
-				noise.setRelative(x, y, Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY));
+				cells[i][j] = permutation[(i + permutation[j & permMask]) & permMask];
 			}
 		}
+		return cells;
+	}
+	
+	@Override
+	protected double sample(long s, int px, int py, double x, double y)
+	{
+		//find the cell and the fraction portions
+		long botX = cell(x, px);
+		long botY = cell(y, py);
+		double fracX = frac(x, botX, px);
+		double fracY = frac(y, botY, py);
+		
+		//find values for x's and y's, with the same gradients as the world cell map
+		double valBXBY = dotProduct(gradient(s, botX, botY), fracX, fracY);
+		double valTXBY = dotProduct(gradient(s, botX + 1, botY), fracX - 1D, fracY);
+		double valBXTY = dotProduct(gradient(s, botX, botY + 1), fracX, fracY - 1D);
+		double valTXTY = dotProduct(gradient(s, botX + 1, botY + 1), fracX - 1D, fracY - 1D);
+		
+		//fade fracs
+		double newFracX = fade(fracX);
+		double newFracY = fade(fracY);
+		
+		//perform y interps
+		double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
+		double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
+		return Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY);
+	}
+	
+	/**
+	 * Returns the gradient of the given world cell.
+	 * @param s The seed.
+	 * @param cellX The x cell.
+	 * @param cellY The y cell.
+	 * @return The gradient, shared, must not be changed.
+	 */
+	private static double[] gradient(long s, long cellX, long cellY)
+	{
+		return gradients[(int)(NoiseGenerator.noise(s, cellX, cellY) * gradients.length) & gradMask];
+	}
+	
+	/**
+	 * Fills a column of the given array with perlin noise.
+	 * @param noise The array to fill.
+	 * @param cells The gradient index of each cell, starting at the cell containing the world origin.
+	 * @param originX The world x coord of the array's first column.
+	 * @param originY The world y coord of the array's first row.
+	 * @param x The column to fill.
+	 */
+	private void fillColumn(NoiseArray noise, int[][] cells, long originX, long originY, int x)
+	{
+		//find the world x
+		long worldX = originX + x;
+		//find botX
+		int botX = (int)(Util.floorDiv(worldX, periodX) - Util.floorDiv(originX, periodX));
+		//find topX
+		int topX = botX + 1;
+		//find x fraction portion
+		double fracX = Util.floorMod(worldX, periodX) / (double)periodX;
+		//find the first cell's y
+		long cellY = Util.floorDiv(originY, periodY);
+		
+		//the column's values, set all at once
+		double[] column = new double[noise.getHeight()];
+		
+		//for all rows
+		for(int y = 0; y < column.length; y++)
+		{
+			//find the world y
+			long worldY = originY + y;
+			//find botY
+			int botY = (int)(Util.floorDiv(worldY, periodY) - cellY);
+			//find topY
+			int topY = botY + 1;
+			//find y fraction portion
+			double fracY = Util.floorMod(worldY, periodY) / (double)periodY;
+			
+			//find values for x's and y's
+			double valBXBY = dotProduct(gradients[cells[botX][botY] & gradMask], fracX, fracY);
+			double valTXBY = dotProduct(gradients[cells[topX][botY] & gradMask], fracX - 1D, fracY);
+			double valBXTY = dotProduct(gradients[cells[botX][topY] & gradMask], fracX, fracY - 1D);
+			double valTXTY = dotProduct(gradients[cells[topX][topY] & gradMask], fracX - 1D, fracY - 1D);
+			
+			//fade fracs
+			double newFracX = fade(fracX);
+			double newFracY = fade(fracY);
+			
+			//perform y interps
+			double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
+			double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
+			
+			//set value
+			column[y] = Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY);
+		}
+		noise.setColumn(x, column);
 	}
 	
 	/**
@@ -149,22 +268,10 @@ public final class LookupPerlinNoise extends PeriodicNoise implements MultiThrea
 	@Override
 	public void fillMultiThreaded(NoiseArray noise, ThreadPool pool)
 	{
-		//generate the permutation table (array of 0-127 shuffled)
-		int[] permutation = new int[128];
-		for(int i = 0; i < permutation.length; i++)
-		{
-			permutation[i] = i;
-		}
-		for(int i = 0; i < permutation.length; i++)
-		{
-			int index = (int)(gen.noise_gen(seed, i) * permutation.length);
-			int value = permutation[i];
-			
-			permutation[i] = permutation[index];
-			permutation[index] = value;
-		}
+		//look up the gradient of every cell
+		int[][] cells = getCellMap(noise, getPermutation());
 		
-		pool.addGlobalTask(new ColumnTask(noise, permutation, 0, noise.getWidth() - 1));
+		pool.addGlobalTask(new ColumnTask(noise, cells, 0, noise.getWidth() - 1));
 		pool.startAndWait();
 	}
 	
@@ -174,54 +281,19 @@ public final class LookupPerlinNoise extends PeriodicNoise implements MultiThrea
 	private class ColumnTask extends ArrayTask
 	{
 		private final NoiseArray noise;
-		private final int[] permutation;
-		private final int permMask;
+		private final int[][] cells;
 		
-		private ColumnTask(NoiseArray array, int[] perm, int min, int max)
+		private ColumnTask(NoiseArray array, int[][] cs, int min, int max)
 		{
 			super(min, max);
 			noise = array;
-			permutation = perm;
-			permMask = permutation.length - 1;
+			cells = cs;
 		}
 
 		@Override
 		public void run(int x)
 		{
-			//find botX
-			int botX = x / periodX;
-			//find topX
-			int topX = botX + 1;
-			//find x fraction portion
-			double fracX = (x % (double)periodX) / periodX;
-			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
-			{
-				//find botY
-				int botY = y / periodY;
-				//find topY
-				int topY = botY + 1;
-				//find y fraction portion
-				double fracY = (y % (double)periodY) / periodY;
-				
-				//find values for x's and y's
-				double valBXBY = dotProduct(gradients[permutation[(botX + permutation[botY & permMask]) & permMask] & gradMask], fracX, fracY);
-				double valTXBY = dotProduct(gradients[permutation[(topX + permutation[botY & permMask]) & permMask] & gradMask], fracX - 1D, fracY);
-				double valBXTY = dotProduct(gradients[permutation[(botX + permutation[topY & permMask]) & permMask] & gradMask], fracX, fracY - 1D);
-				double valTXTY = dotProduct(gradients[permutation[(topX + permutation[topY & permMask]) & permMask] & gradMask], fracX - 1D, fracY - 1D);
-				
-				//fade fracs
-				double newFracX = fade(fracX);
-				double newFracY = fade(fracY);
-				
-				//perform y interps
-				double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
-				double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
-				
-				//set value
-				noise.setRelative(x, y, Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY));
-			}
+			fillColumn(noise, cells, 0, 0, x);
 		}
 	}
 }
@@ -0,0 +1,257 @@
+package noise;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * 
+ * NoiseArray that stores its values in a memory mapped file, so it can be bigger than the physical memory.
+ * Each band is mapped as its own window of the file, and the OS pages the windows in and out as they are used.
+ * The file starts with a HEADER_BYTES header (magic, minX, minY, width, height, stride as little endian ints),
+ * followed by the values as little endian doubles, row major with the stride from the header.
+ * The stride is at least the width, it stays larger after the width shrinks since the values are not moved.
+ * A file written by one MappedNoiseArray can be reopened later with open, without copying the values.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class MappedNoiseArray extends BufferNoiseArray
+{
+	/**Marks the start of a noise file, "NOIS".*/
+	public static final int MAGIC = 0x4E4F4953;
+	/**The size of the header before the values.*/
+	public static final int HEADER_BYTES = 32;
+	
+	//the file
+	private final File file;
+	//the open file
+	private final RandomAccessFile raf;
+	//the channel of the file
+	private final FileChannel channel;
+	//true if the file can be written to
+	private final boolean writable;
+	//true to delete the file when closed
+	private boolean deleteOnClose = false;
+	
+	/**
+	 * Creates a new MappedNoiseArray with the given width and height in the given file.
+	 * Anything in the file is overwritten.
+	 * @param f The file to store the array in.
+	 * @param w The width.
+	 * @param h The height.
+	 * @throws IOException If the file can't be opened.
+	 */
+	public MappedNoiseArray(File f, int w, int h) throws IOException
+	{
+		this(f, 0, 0, w - 1, h - 1);
+	}
+	
+	/**
+	 * Creates a new MappedNoiseArray with the given mins and maxs in the given file.
+	 * Anything in the file is overwritten.
+	 * @param f The file to store the array in.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 * @throws IOException If the file can't be opened.
+	 */
+	public MappedNoiseArray(File f, int miX, int miY, int maX, int maY) throws IOException
+	{
+		this(f, true);
+		raf.setLength(0);
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	/**
+	 * Opens the given file without touching its contents.
+	 * @param f The file.
+	 * @param write True to open for writing.
+	 * @throws IOException If the file can't be opened.
+	 */
+	private MappedNoiseArray(File f, boolean write) throws IOException
+	{
+		file = f;
+		writable = write;
+		raf = new RandomAccessFile(f, write ? "rw" : "r");
+		channel = raf.getChannel();
+	}
+	
+	/**
+	 * Opens an array previously written to the given file. The values are mapped, not read.
+	 * @param f The file.
+	 * @param write True to allow changing the values, false to open read only.
+	 * @return The array.
+	 * @throws IOException If the file can't be opened or is not a noise file.
+	 */
+	public static MappedNoiseArray open(File f, boolean write) throws IOException
+	{
+		MappedNoiseArray array = new MappedNoiseArray(f, write);
+		try
+		{
+			//read the header
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			array.channel.read(header, 0);
+			header.flip();
+			if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+			{
+				throw new IOException("Not a noise file: " + f);
+			}
+			int miX = header.getInt();
+			int miY = header.getInt();
+			int w = header.getInt();
+			int h = header.getInt();
+			int stride = header.getInt();
+			//files without a stride are packed
+			if(stride == 0)
+			{
+				stride = w;
+			}
+			if(w <= 0 || h <= 0 || stride < w)
+			{
+				throw new IOException("Not a noise file: " + f);
+			}
+			if(array.channel.size() < HEADER_BYTES + ((long)stride * h * 8))
+			{
+				throw new IOException("Noise file is truncated: " + f);
+			}
+			//map with the file's stride, setBounds keeps bands the rows fit in
+			array.allocateBands(stride, h);
+			array.setBounds(miX, miY, miX + w - 1, miY + h - 1);
+			return array;
+		}catch(IOException ex)
+		{
+			array.channel.close();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Returns the file this array is stored in.
+	 * @return The file.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+	
+	/**
+	 * Sets whether to delete the file when this array is closed.
+	 * @param delete True to delete.
+	 */
+	public void setDeleteOnClose(boolean delete)
+	{
+		deleteOnClose = delete;
+	}
+	
+	/**
+	 * Creates a new MappedNoiseArray in a temporary file next to this array's file, deleted when closed.
+	 */
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		try
+		{
+			File temp = File.createTempFile("noise", ".map", file.getAbsoluteFile().getParentFile());
+			temp.deleteOnExit();
+			MappedNoiseArray array = new MappedNoiseArray(temp, w, h);
+			array.setDeleteOnClose(true);
+			return array;
+		}catch(IOException ex)
+		{
+			throw new RuntimeException("Could not create noise file", ex);
+		}
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		super.ensureCapacity();
+		//keep the header in step with the bounds
+		if(writable)
+		{
+			writeHeader();
+		}
+	}
+	
+	/**
+	 * Writes the header for the current bounds to the file.
+	 */
+	private void writeHeader()
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(minX).putInt(minY).putInt(getWidth()).putInt(getHeight()).putInt(stride);
+		header.clear();
+		try
+		{
+			channel.write(header, 0);
+		}catch(IOException ex)
+		{
+			throw new RuntimeException("Could not write noise file header", ex);
+		}
+	}
+	
+	@Override
+	protected ByteBuffer allocate(long position, int bytes)
+	{
+		try
+		{
+			//maps past the end of a writable file grow it
+			MappedByteBuffer buffer = channel.map(writable ? MapMode.READ_WRITE : MapMode.READ_ONLY, HEADER_BYTES + position, bytes);
+			return buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}catch(IOException ex)
+		{
+			throw new RuntimeException("Could not map noise file", ex);
+		}
+	}
+	
+	@Override
+	protected void release(ByteBuffer buffer)
+	{
+		if(writable)
+		{
+			((MappedByteBuffer)buffer).force();
+		}
+		clean(buffer);
+	}
+	
+	/**
+	 * Writes all changed values to the file.
+	 */
+	public void flush()
+	{
+		if(writable && buffers != null)
+		{
+			for(ByteBuffer buffer : buffers)
+			{
+				((MappedByteBuffer)buffer).force();
+			}
+		}
+	}
+	
+	/**
+	 * Writes all changed values to the file, unmaps it and closes it.
+	 */
+	@Override
+	public void close()
+	{
+		super.close();
+		try
+		{
+			channel.close();
+		}catch(IOException ex)
+		{
+			throw new RuntimeException("Could not close noise file", ex);
+		}
+		if(deleteOnClose)
+		{
+			file.delete();
+		}
+	}
+}
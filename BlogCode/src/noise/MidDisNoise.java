@@ -13,10 +13,6 @@ public final class MidDisNoise extends SeededNoise
 	 * The sentinel value for seeded noise.
 	 */
 	public static final double SENTINEL = Double.POSITIVE_INFINITY;
-	/**
-	 * The NoiseGenerator instance for this MidpointDisplacementNoise.
-	 */
-	private NoiseGenerator gen = new NoiseGenerator();
 	/**
 	 * The starting amplitude of this noise.
 	 */
@@ -51,7 +47,7 @@ public final class MidDisNoise extends SeededNoise
 		//only set the 
 		if(!seeded || noise.get(0, 0) == SENTINEL)
 		{
-			noise.set(0, 0, .5 + ((gen.noise_gen(seed, 0, 0) - .5) * 2 * startingAmplitude));
+			noise.set(0, 0, .5 + ((value(0, 0) - .5) * 2 * startingAmplitude));
 		}
 		calculate(noise);
 	}
@@ -118,7 +114,7 @@ public final class MidDisNoise extends SeededNoise
 		value += noise.get(x + halfSize, y + halfSize);
 		value /= 4;
 		
-		noise.set(x, y, value + ((gen.noise_gen(seed, x, y) - .5) * 2 * amplitude));
+		noise.set(x, y, value + ((value(x, y) - .5) * 2 * amplitude));
 	}
 	
 	private void diamondStep(NoiseArray noise, int x, int y, int halfSize, double amplitude)
@@ -137,6 +133,6 @@ public final class MidDisNoise extends SeededNoise
 		value += noise.get(x, y + halfSize);
 		value /= 4;
 		
-		noise.set(x, y, value + ((gen.noise_gen(seed, x, y) - .5) * 2 * amplitude));
+		noise.set(x, y, value + ((value(x, y) - .5) * 2 * amplitude));
 	}
 }
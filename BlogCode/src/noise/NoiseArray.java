@@ -1,7 +1,11 @@
 package noise;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import util.Util;
+import util.concurrent.ArrayTask;
+import util.concurrent.ThreadPool;
 
 /**
  * 
@@ -12,7 +16,8 @@ import util.Util;
  */
 public class NoiseArray
 {
-	/**The base noise array of this NoiseArray. In most case you should not need to access this.*/
+	/**The base noise array of this NoiseArray, indexed [x - minX][y - minY]. In most case you should not need to access this.
+	 * Null for subclasses that provide their own storage.*/
 	public double[][] noise;
 	//self explanatory
 	public int minX;
@@ -29,6 +34,52 @@ public class NoiseArray
 	/**Offset to add to incoming values.*/
 	public double offset = 0;
 	
+	/**The number of rows in each strip the pooled normalize and stats split the array into.*/
+	public static final int STRIP_ROWS = 64;
+	/**The number of values above which the bulk operations run on the pool, if there is one.*/
+	public static final int PARALLEL_VALUES = 1 << 16;
+	
+	/**The pool the bulk operations (add, mul, fma, lerp, clamp, map) run on for big arrays, null to always run on the calling thread.*/
+	public ThreadPool pool;
+	
+	//the bulk operations
+	private static final int ADD = 0;
+	private static final int ADD_VALUE = 1;
+	private static final int MUL = 2;
+	private static final int MUL_VALUE = 3;
+	private static final int FMA = 4;
+	private static final int FMA_VALUE = 5;
+	private static final int LERP = 6;
+	private static final int CLAMP = 7;
+	private static final int MAP = 8;
+	
+	//true if the range of written values is tracked
+	private boolean trackRange = false;
+	//the [min, max] of the values written by each thread, merged when needed
+	private final List<double[]> ranges = new ArrayList<double[]>();
+	//the [min, max] of the values written by the current thread
+	private final ThreadLocal<double[]> localRange = new ThreadLocal<double[]>()
+	{
+		@Override
+		protected double[] initialValue()
+		{
+			double[] range = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+			synchronized(ranges)
+			{
+				ranges.add(range);
+			}
+			return range;
+		}
+	};
+	
+	/**
+	 * Creates a NoiseArray without any storage, for subclasses that provide their own.
+	 * Subclasses should call setBounds once their storage can be allocated.
+	 */
+	protected NoiseArray()
+	{
+	}
+	
 	/**
 	 * Creates a new NoiseArray with the given with and height.
 	 * @param w The width.
@@ -106,15 +157,58 @@ public class NoiseArray
 	
 	/**
 	 * Ensures there is enough capacity in this NoiseArray for its width and height.
+	 * Subclasses that provide their own storage should override this to allocate it.
 	 */
-	private void ensureCapacity()
+	protected void ensureCapacity()
 	{
-		if((maxX - minX) >= noise.length || (maxY - minY) >= noise[0].length)
+		if(noise == null || (maxX - minX) >= noise.length || (maxY - minY) >= noise[0].length)
 		{
 			noise = new double[maxX - minX + 1][maxY - minY + 1];
 		}
 	}
 	
+	/**
+	 * Creates a new NoiseArray of the same kind as this one with the given width and height.
+	 * Used for scratch arrays, like FractalNoise's octaves, so they share this array's storage.
+	 * Arrays that round their values return a double array of the same layout instead, so partial sums are never rounded.
+	 * Does not copy values, bounds or settings.
+	 * @param w The width.
+	 * @param h The height.
+	 * @return The new NoiseArray.
+	 */
+	public NoiseArray create(int w, int h)
+	{
+		return new NoiseArray(w, h);
+	}
+	
+	/**
+	 * Returns a view of the given rectangle of this NoiseArray, sharing its storage.
+	 * Filling the view fills that rectangle of this array, no values are copied.
+	 * @param x The x position of the rectangle's first column.
+	 * @param y The y position of the rectangle's first row.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 * @return The view.
+	 */
+	public NoiseArrayView view(int x, int y, int w, int h)
+	{
+		return new NoiseArrayView(this, x, y, w, h);
+	}
+	
+	/**
+	 * Returns the number of bytes used to store the values of this NoiseArray.
+	 * Does not count object headers.
+	 * @return The memory usage in bytes.
+	 */
+	public long memoryUsage()
+	{
+		if(noise == null)
+		{
+			return 0;
+		}
+		return (long)noise.length * noise[0].length * 8;
+	}
+	
 	/**
 	 * Returns the width of this NoiseArray.
 	 * @return The width.
@@ -144,7 +238,13 @@ public class NoiseArray
 	{
 		x = fix(x, minX, maxX, wrapX);
 		y = fix(y, minY, maxY, wrapY);
-		noise[x][y] = (value * amplitude) + offset;
+		store(x - minX, y - minY, (value * amplitude) + offset);
+		if(trackRange)
+		{
+			//track the value as stored
+			double stored = load(x - minX, y - minY);
+			track(stored, stored);
+		}
 	}
 	
 	/**
@@ -170,7 +270,7 @@ public class NoiseArray
 	{
 		x = fix(x, minX, maxX, wrapX);
 		y = fix(y, minY, maxY, wrapY);
-		return noise[x][y];
+		return load(x - minX, y - minY);
 	}
 	
 	/**
@@ -182,38 +282,801 @@ public class NoiseArray
 	 */
 	public double getRelative(int x, int y)
 	{
-		return get(x - minX, y - minY);
+		return get(x + minX, y + minY);
+	}
+	
+	/**
+	 * Copies the given row into dst.
+	 * Checks the range once instead of wrapping or clipping every value, so y must be within the bounds.
+	 * @param y The y position relative to minY.
+	 * @param dst The array to copy into, must fit width values after off.
+	 * @param off The index in dst of the first value.
+	 */
+	public void getRow(int y, double[] dst, int off)
+	{
+		checkRow(y, dst.length, off);
+		for(int i = 0; i < getWidth(); i++)
+		{
+			dst[off + i] = load(i, y);
+		}
+	}
+	
+	/**
+	 * Copies the given row into the start of dst.
+	 * @param y The y position relative to minY.
+	 * @param dst The array to copy into, must fit width values.
+	 */
+	public final void getRow(int y, double[] dst)
+	{
+		getRow(y, dst, 0);
+	}
+	
+	/**
+	 * Sets the given row to the values in src, applying amplitude and offset like set.
+	 * Checks the range once instead of wrapping or clipping every value, so y must be within the bounds.
+	 * @param y The y position relative to minY.
+	 * @param src The values, must hold width values after off.
+	 * @param off The index in src of the first value.
+	 */
+	public void setRow(int y, double[] src, int off)
+	{
+		checkRow(y, src.length, off);
+		for(int i = 0; i < getWidth(); i++)
+		{
+			store(i, y, (src[off + i] * amplitude) + offset);
+		}
+		trackRow(y);
+	}
+	
+	/**
+	 * Sets the given row to the values at the start of src.
+	 * @param y The y position relative to minY.
+	 * @param src The values, must hold width values.
+	 */
+	public final void setRow(int y, double[] src)
+	{
+		setRow(y, src, 0);
+	}
+	
+	/**
+	 * Copies the given column into dst.
+	 * Checks the range once instead of wrapping or clipping every value, so x must be within the bounds.
+	 * @param x The x position relative to minX.
+	 * @param dst The array to copy into, must fit height values after off.
+	 * @param off The index in dst of the first value.
+	 */
+	public void getColumn(int x, double[] dst, int off)
+	{
+		checkColumn(x, dst.length, off);
+		if(noise != null)//columns are arrays already
+		{
+			System.arraycopy(noise[x], 0, dst, off, getHeight());
+			return;
+		}
+		for(int j = 0; j < getHeight(); j++)
+		{
+			dst[off + j] = load(x, j);
+		}
+	}
+	
+	/**
+	 * Copies the given column into the start of dst.
+	 * @param x The x position relative to minX.
+	 * @param dst The array to copy into, must fit height values.
+	 */
+	public final void getColumn(int x, double[] dst)
+	{
+		getColumn(x, dst, 0);
+	}
+	
+	/**
+	 * Sets the given column to the values in src, applying amplitude and offset like set.
+	 * Checks the range once instead of wrapping or clipping every value, so x must be within the bounds.
+	 * @param x The x position relative to minX.
+	 * @param src The values, must hold height values after off.
+	 * @param off The index in src of the first value.
+	 */
+	public void setColumn(int x, double[] src, int off)
+	{
+		checkColumn(x, src.length, off);
+		if(noise != null)//columns are arrays already
+		{
+			double[] column = noise[x];
+			for(int j = 0; j < getHeight(); j++)
+			{
+				column[j] = (src[off + j] * amplitude) + offset;
+			}
+		}else
+		{
+			for(int j = 0; j < getHeight(); j++)
+			{
+				store(x, j, (src[off + j] * amplitude) + offset);
+			}
+		}
+		trackColumn(x);
+	}
+	
+	/**
+	 * Sets the given column to the values at the start of src.
+	 * @param x The x position relative to minX.
+	 * @param src The values, must hold height values.
+	 */
+	public final void setColumn(int x, double[] src)
+	{
+		setColumn(x, src, 0);
+	}
+	
+	/**
+	 * Throws an IndexOutOfBoundsException unless the given row is within the bounds and width values fit in the given array after off.
+	 * @param y The y position relative to minY.
+	 * @param length The length of the array.
+	 * @param off The index in the array of the first value.
+	 */
+	protected final void checkRow(int y, int length, int off)
+	{
+		if(y < 0 || y >= getHeight() || off < 0 || off > length - getWidth())
+		{
+			throw new IndexOutOfBoundsException("row: " + y + ", off: " + off + ", length: " + length);
+		}
+	}
+	
+	/**
+	 * Throws an IndexOutOfBoundsException unless the given column is within the bounds and height values fit in the given array after off.
+	 * @param x The x position relative to minX.
+	 * @param length The length of the array.
+	 * @param off The index in the array of the first value.
+	 */
+	protected final void checkColumn(int x, int length, int off)
+	{
+		if(x < 0 || x >= getWidth() || off < 0 || off > length - getHeight())
+		{
+			throw new IndexOutOfBoundsException("column: " + x + ", off: " + off + ", length: " + length);
+		}
 	}
 	
 	/**
 	 * Normalizes the values of this noise array.
 	 * (resizes so the max = 1 and min = 0)
+	 * If the range is tracked, uses the tracked range instead of searching for it.
 	 */
 	public void normalize()
+	{
+		double[] range = trackRange ? getTrackedRange() : findRange();
+		double min = range[0];
+		double max = range[1];
+		
+		//find multi
+		double multi = 1 / (max - min);
+		
+		//multiply all values by multi.
+		rescale(min, multi);
+		rescaleTrackedRange(min, max, multi);
+	}
+	
+	/**
+	 * Returns the min and max of the values of this array.
+	 * @return The [min, max].
+	 */
+	protected double[] findRange()
 	{
 		double min = Double.POSITIVE_INFINITY;
 		double max = Double.NEGATIVE_INFINITY;
 		
+		int w = getWidth();
+		int h = getHeight();
+		
 		//for all values, find min and max
-		for(int x = minX; x <= maxX; x++)
+		for(int i = 0; i < w; i++)
+		{
+			for(int j = 0; j < h; j++)
+			{
+				double value = load(i, j);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	/**
+	 * Sets every value v of this array to (v - min) * multi.
+	 * @param min The value to subtract.
+	 * @param multi The value to multiply by.
+	 */
+	protected void rescale(double min, double multi)
+	{
+		int w = getWidth();
+		int h = getHeight();
+		for(int i = 0; i < w; i++)
 		{
-			for(int y = minY; y <= maxY; y++)
+			for(int j = 0; j < h; j++)
 			{
-				min = Math.min(min, noise[x][y]);
-				max = Math.max(max, noise[x][y]);
+				store(i, j, (load(i, j) - min) * multi);
+			}
+		}
+	}
+	
+	/**
+	 * Normalizes the values of this noise array using the given pool.
+	 * Finds the min and max of each strip of STRIP_ROWS rows in parallel, then rescales the strips in parallel.
+	 * Gives exactly the same values as normalize().
+	 * If the range is tracked, uses the tracked range instead of searching for it.
+	 * @param pool The pool to run on.
+	 */
+	public void normalize(ThreadPool pool)
+	{
+		final int strips = getStripCount();
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		
+		if(trackRange)
+		{
+			double[] range = getTrackedRange();
+			min = range[0];
+			max = range[1];
+		}else
+		{
+			final double[] mins = new double[strips];
+			final double[] maxs = new double[strips];
+			
+			//find min and max of each strip
+			pool.addGlobalTask(new ArrayTask(0, strips - 1)
+			{
+				@Override
+				public void run(int strip)
+				{
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					int end = stripEnd(strip);
+					for(int i = 0; i < getWidth(); i++)
+					{
+						for(int j = strip * STRIP_ROWS; j < end; j++)
+						{
+							double value = load(i, j);
+							min = Math.min(min, value);
+							max = Math.max(max, value);
+						}
+					}
+					mins[strip] = min;
+					maxs[strip] = max;
+				}
+			});
+			pool.startAndWait();
+			
+			//combine them
+			for(int strip = 0; strip < strips; strip++)
+			{
+				min = Math.min(min, mins[strip]);
+				max = Math.max(max, maxs[strip]);
 			}
 		}
 		
 		//find multi
-		double multi = 1 / (max - min);
+		final double finalMin = min;
+		final double multi = 1 / (max - min);
 		
 		//multiply all values by multi.
-		for(int x = minX; x <= maxX; x++)
+		pool.addGlobalTask(new ArrayTask(0, strips - 1)
+		{
+			@Override
+			public void run(int strip)
+			{
+				int end = stripEnd(strip);
+				for(int i = 0; i < getWidth(); i++)
+				{
+					for(int j = strip * STRIP_ROWS; j < end; j++)
+					{
+						store(i, j, (load(i, j) - finalMin) * multi);
+					}
+				}
+			}
+		});
+		pool.startAndWait();
+		rescaleTrackedRange(min, max, multi);
+	}
+	
+	/**
+	 * Sets whether to keep track of the min and max of the values written through set, setRelative, setRow, setColumn and fillWith.
+	 * When tracked, normalize uses the tracked range instead of searching the array for it.
+	 * Each thread tracks the values it writes on its own, the ranges are only merged when needed.
+	 * The tracked range covers everything written since tracking started or resetRange was last called,
+	 * so it is only exact if nothing has been overwritten since then. Starts tracking from an empty range.
+	 * @param track True to track the range.
+	 */
+	public void setTrackRange(boolean track)
+	{
+		trackRange = track;
+		resetRange();
+	}
+	
+	/**
+	 * Returns true if the range of written values is tracked.
+	 * @return True if tracked.
+	 */
+	public boolean isTrackingRange()
+	{
+		return trackRange;
+	}
+	
+	/**
+	 * Forgets the tracked range, call before writing every value again. Must not be called while other threads are writing.
+	 */
+	public void resetRange()
+	{
+		synchronized(ranges)
+		{
+			for(double[] range : ranges)
+			{
+				range[0] = Double.POSITIVE_INFINITY;
+				range[1] = Double.NEGATIVE_INFINITY;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the tracked range, merged from all threads that wrote values.
+	 * Must not be called while other threads are writing.
+	 * @return The [min, max], [infinity, -infinity] if nothing was written.
+	 */
+	public double[] getTrackedRange()
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		synchronized(ranges)
+		{
+			for(double[] range : ranges)
+			{
+				min = Math.min(min, range[0]);
+				max = Math.max(max, range[1]);
+			}
+		}
+		return new double[]{min, max};
+	}
+	
+	/**
+	 * Adds the given range of stored values to the current thread's tracked range, if tracking.
+	 * @param min The min of the stored values.
+	 * @param max The max of the stored values.
+	 */
+	protected final void track(double min, double max)
+	{
+		if(trackRange)
+		{
+			double[] range = localRange.get();
+			range[0] = Math.min(range[0], min);
+			range[1] = Math.max(range[1], max);
+		}
+	}
+	
+	/**
+	 * Adds the stored values of the given row to the current thread's tracked range, if tracking.
+	 * Bulk writers call this once they are done, while the row is still in cache.
+	 * @param y The y position relative to minY.
+	 */
+	protected final void trackRow(int y)
+	{
+		if(trackRange)
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(int i = 0; i < getWidth(); i++)
+			{
+				double value = load(i, y);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			track(min, max);
+		}
+	}
+	
+	/**
+	 * Adds the stored values of the given column to the current thread's tracked range, if tracking.
+	 * Bulk writers call this once they are done, while the column is still in cache.
+	 * @param x The x position relative to minX.
+	 */
+	protected final void trackColumn(int x)
+	{
+		if(trackRange)
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(int j = 0; j < getHeight(); j++)
+			{
+				double value = load(x, j);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			track(min, max);
+		}
+	}
+	
+	/**
+	 * Replaces the tracked range with the given range after rescaling, if tracking.
+	 * @param min The min before rescaling.
+	 * @param max The max before rescaling.
+	 * @param multi The multiplier used.
+	 */
+	protected final void rescaleTrackedRange(double min, double max, double multi)
+	{
+		if(trackRange)
+		{
+			resetRange();
+			track((min - min) * multi, (max - min) * multi);
+		}
+	}
+	
+	/**
+	 * Returns the min, max, mean and variance of the values of this array, found in a single pass.
+	 * @return The stats.
+	 */
+	public Stats stats()
+	{
+		Stats[] partials = new Stats[getStripCount()];
+		for(int strip = 0; strip < partials.length; strip++)
+		{
+			partials[strip] = stripStats(strip);
+		}
+		return Stats.merge(partials);
+	}
+	
+	/**
+	 * Returns the min, max, mean and variance of the values of this array, found in a single parallel pass.
+	 * Each strip of STRIP_ROWS rows is measured on its own and the strips are combined in order afterwards,
+	 * so the result is exactly the same as stats() no matter how the strips were spread over the threads.
+	 * @param pool The pool to run on.
+	 * @return The stats.
+	 */
+	public Stats stats(ThreadPool pool)
+	{
+		final Stats[] partials = new Stats[getStripCount()];
+		pool.addGlobalTask(new ArrayTask(0, partials.length - 1)
+		{
+			@Override
+			public void run(int strip)
+			{
+				partials[strip] = stripStats(strip);
+			}
+		});
+		pool.startAndWait();
+		return Stats.merge(partials);
+	}
+	
+	/**
+	 * Returns the stats of the given strip.
+	 * @param strip The index of the strip.
+	 * @return The stats.
+	 */
+	private Stats stripStats(int strip)
+	{
+		long count = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double mean = 0;
+		//sum of squared differences from the mean
+		double m2 = 0;
+		int end = stripEnd(strip);
+		for(int i = 0; i < getWidth(); i++)
+		{
+			for(int j = strip * STRIP_ROWS; j < end; j++)
+			{
+				double value = load(i, j);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				//Welford's running mean and variance
+				count++;
+				double delta = value - mean;
+				mean += delta / count;
+				m2 += delta * (value - mean);
+			}
+		}
+		return new Stats(count, min, max, mean, m2);
+	}
+	
+	/**
+	 * Returns the number of strips of STRIP_ROWS rows this array splits into, the last may be shorter.
+	 * @return The number of strips.
+	 */
+	private int getStripCount()
+	{
+		return (getHeight() + STRIP_ROWS - 1) / STRIP_ROWS;
+	}
+	
+	/**
+	 * Returns the row after the last row of the given strip.
+	 * @param strip The index of the strip.
+	 * @return The end row, relative to minY.
+	 */
+	private int stripEnd(int strip)
+	{
+		return Math.min(getHeight(), (strip + 1) * STRIP_ROWS);
+	}
+	
+	/**
+	 * Adds the values of the given array to the values of this array.
+	 * Like all bulk operations, works on the stored values by position relative to the mins, without wrapping,
+	 * amplitude or offset, and runs on the pool if this array has more than PARALLEL_VALUES values.
+	 * Every value is stored, so sparse arrays like TiledNoiseArray end up fully allocated.
+	 * @param other The array to add, the same size as this one.
+	 */
+	public void add(NoiseArray other)
+	{
+		apply(ADD, other, null, null, 0, 0, null);
+	}
+	
+	/**
+	 * Adds the given value to every value of this array.
+	 * @param value The value to add.
+	 */
+	public void add(double value)
+	{
+		apply(ADD_VALUE, null, null, null, value, 0, null);
+	}
+	
+	/**
+	 * Multiplies the values of this array by the values of the given array.
+	 * @param other The array to multiply by, the same size as this one.
+	 */
+	public void mul(NoiseArray other)
+	{
+		apply(MUL, other, null, null, 0, 0, null);
+	}
+	
+	/**
+	 * Multiplies every value of this array by the given value.
+	 * @param value The value to multiply by.
+	 */
+	public void mul(double value)
+	{
+		apply(MUL_VALUE, null, null, null, value, 0, null);
+	}
+	
+	/**
+	 * Multiplies the values of this array by the values of multi and adds the values of add. (v = v * multi + add)
+	 * @param multi The array to multiply by, the same size as this one.
+	 * @param add The array to add, the same size as this one.
+	 */
+	public void fma(NoiseArray multi, NoiseArray add)
+	{
+		apply(FMA, multi, add, null, 0, 0, null);
+	}
+	
+	/**
+	 * Multiplies every value of this array by multi and adds add. (v = v * multi + add)
+	 * @param multi The value to multiply by.
+	 * @param add The value to add.
+	 */
+	public void fma(double multi, double add)
+	{
+		apply(FMA_VALUE, null, null, null, multi, add, null);
+	}
+	
+	/**
+	 * Sets the values of this array to a blend of a and b by the values of mask. (v = a + (b - a) * mask)
+	 * Either a or b may be this array.
+	 * @param a The values where the mask is 0, the same size as this array.
+	 * @param b The values where the mask is 1, the same size as this array.
+	 * @param mask The blend, the same size as this array.
+	 */
+	public void lerp(NoiseArray a, NoiseArray b, NoiseArray mask)
+	{
+		apply(LERP, a, b, mask, 0, 0, null);
+	}
+	
+	/**
+	 * Clamps every value of this array between min and max. NaNs stay NaN.
+	 * @param min The min value.
+	 * @param max The max value.
+	 */
+	public void clamp(double min, double max)
+	{
+		apply(CLAMP, null, null, null, min, max, null);
+	}
+	
+	/**
+	 * Replaces every value of this array with the given operator's result for it.
+	 * The operator may be called from several threads at once.
+	 * @param op The operator.
+	 */
+	public void map(Operator op)
+	{
+		apply(MAP, null, null, null, 0, 0, op);
+	}
+	
+	/**
+	 * Applies the given bulk operation to every value of this array, a strip of STRIP_ROWS rows at a time,
+	 * on the pool if there is one and this array is big enough.
+	 * @param op The operation.
+	 * @param a The first array operand, or null.
+	 * @param b The second array operand, or null.
+	 * @param c The third array operand, or null.
+	 * @param x The first value operand.
+	 * @param y The second value operand.
+	 * @param f The operator for MAP, or null.
+	 */
+	private void apply(final int op, NoiseArray a, NoiseArray b, NoiseArray c, final double x, final double y, final Operator f)
+	{
+		checkSize(a);
+		checkSize(b);
+		checkSize(c);
+		//every value gets written, so a tracked range can start over
+		resetRange();
+		
+		final NoiseArray[] operands = {a, b, c};
+		int strips = getStripCount();
+		if(pool == null || ((long)getWidth() * getHeight()) <= PARALLEL_VALUES)
 		{
-			for(int y = minY; y <= maxY; y++)
+			for(int strip = 0; strip < strips; strip++)
 			{
-				noise[x][y] = ((noise[x][y] - min) * multi);
+				applyStrip(op, operands, x, y, f, strip * STRIP_ROWS, stripEnd(strip));
 			}
+		}else
+		{
+			pool.addGlobalTask(new ArrayTask(0, strips - 1)
+			{
+				@Override
+				public void run(int strip)
+				{
+					applyStrip(op, operands, x, y, f, strip * STRIP_ROWS, stripEnd(strip));
+				}
+			});
+			pool.startAndWait();
+		}
+	}
+	
+	/**
+	 * Throws an IllegalArgumentException unless the given array is null or the same size as this one.
+	 * @param other The array to check.
+	 */
+	private void checkSize(NoiseArray other)
+	{
+		if(other != null && (other.getWidth() != getWidth() || other.getHeight() != getHeight()))
+		{
+			throw new IllegalArgumentException("Size mismatch: " + other.getWidth() + "x" + other.getHeight() + ", expected " + getWidth() + "x" + getHeight());
+		}
+	}
+	
+	/**
+	 * Applies the given bulk operation to the given rows.
+	 * Works on the column arrays directly when every array is a plain column array,
+	 * otherwise on copies of each row, which suits the other layouts.
+	 * @param op The operation.
+	 * @param operands The array operands, null where unused.
+	 * @param x The first value operand.
+	 * @param y The second value operand.
+	 * @param f The operator for MAP, or null.
+	 * @param start The first row, relative to minY.
+	 * @param end The row after the last row, relative to minY.
+	 */
+	private void applyStrip(int op, NoiseArray[] operands, double x, double y, Operator f, int start, int end)
+	{
+		boolean columns = noise != null;
+		for(NoiseArray operand : operands)
+		{
+			columns &= operand == null || operand.noise != null;
+		}
+		
+		int w = getWidth();
+		if(columns)
+		{
+			for(int i = 0; i < w; i++)
+			{
+				applyColumn(op, noise[i], column(operands[0], i), column(operands[1], i), column(operands[2], i), x, y, f, start, end);
+			}
+		}else
+		{
+			//copy each row out, apply the operation to the copies and store the result
+			double[] row = new double[w];
+			double[][] operandRows = new double[operands.length][];
+			for(int k = 0; k < operands.length; k++)
+			{
+				operandRows[k] = operands[k] == null ? null : new double[w];
+			}
+			for(int j = start; j < end; j++)
+			{
+				getRow(j, row);
+				for(int k = 0; k < operands.length; k++)
+				{
+					if(operands[k] != null)
+					{
+						operands[k].getRow(j, operandRows[k]);
+					}
+				}
+				applyColumn(op, row, operandRows[0], operandRows[1], operandRows[2], x, y, f, 0, w);
+				for(int i = 0; i < w; i++)
+				{
+					store(i, j, row[i]);
+				}
+			}
+		}
+		for(int j = start; j < end; j++)
+		{
+			trackRow(j);
+		}
+	}
+	
+	/**
+	 * Returns the given column of the given array's column arrays.
+	 * @param array The array, or null.
+	 * @param i The column.
+	 * @return The column, or null if there is no array.
+	 */
+	private static double[] column(NoiseArray array, int i)
+	{
+		return array == null ? null : array.noise[i];
+	}
+	
+	/**
+	 * Applies the given bulk operation to part of a column or row, one simple loop per operation so the JIT can unroll and vectorize it.
+	 * @param op The operation.
+	 * @param t The values to change.
+	 * @param a The first operand's values, or null.
+	 * @param b The second operand's values, or null.
+	 * @param c The third operand's values, or null.
+	 * @param x The first value operand.
+	 * @param y The second value operand.
+	 * @param f The operator for MAP, or null.
+	 * @param start The first index.
+	 * @param end The index after the last.
+	 */
+	private static void applyColumn(int op, double[] t, double[] a, double[] b, double[] c, double x, double y, Operator f, int start, int end)
+	{
+		switch(op)
+		{
+			case ADD:
+				for(int j = start; j < end; j++)
+				{
+					t[j] += a[j];
+				}
+				break;
+			case ADD_VALUE:
+				for(int j = start; j < end; j++)
+				{
+					t[j] += x;
+				}
+				break;
+			case MUL:
+				for(int j = start; j < end; j++)
+				{
+					t[j] *= a[j];
+				}
+				break;
+			case MUL_VALUE:
+				for(int j = start; j < end; j++)
+				{
+					t[j] *= x;
+				}
+				break;
+			case FMA:
+				for(int j = start; j < end; j++)
+				{
+					t[j] = (t[j] * a[j]) + b[j];
+				}
+				break;
+			case FMA_VALUE:
+				for(int j = start; j < end; j++)
+				{
+					t[j] = (t[j] * x) + y;
+				}
+				break;
+			case LERP:
+				for(int j = start; j < end; j++)
+				{
+					t[j] = a[j] + ((b[j] - a[j]) * c[j]);
+				}
+				break;
+			case CLAMP:
+				for(int j = start; j < end; j++)
+				{
+					//NaN fails both compares and stays NaN
+					t[j] = t[j] < x ? x : (t[j] > y ? y : t[j]);
+				}
+				break;
+			default:
+				for(int j = start; j < end; j++)
+				{
+					t[j] = f.apply(t[j]);
+				}
+				break;
 		}
 	}
 	
@@ -221,30 +1084,157 @@ public class NoiseArray
 	 * Fills this NoiseArray with the given value.
 	 * @param value The value to fill with.
 	 */
-	public void fillWith(double value)
+	public final void fillWith(double value)
+	{
+		fill(value);
+		if(trackRange)
+		{
+			//track the value as stored
+			resetRange();
+			double stored = load(0, 0);
+			track(stored, stored);
+		}
+	}
+	
+	/**
+	 * Stores the given value, as is, at every position of this NoiseArray.
+	 * @param value The value to fill with.
+	 */
+	protected void fill(double value)
 	{
-		for(int x = minX; x <= maxX; x++)
+		for(int i = 0; i < getWidth(); i++)
 		{
-			Arrays.fill(noise[x], value);
+			Arrays.fill(noise[i], 0, getHeight(), value);
 		}
 	}
 	
+	/**
+	 * Returns the stored value at the given index relative to the mins.
+	 * Does not fix the index, so it must be within the bounds.
+	 * Subclasses that provide their own storage override this and store.
+	 * @param i The x index, from 0 to width - 1.
+	 * @param j The y index, from 0 to height - 1.
+	 * @return The stored value.
+	 */
+	protected double load(int i, int j)
+	{
+		return noise[i][j];
+	}
+	
+	/**
+	 * Stores the given value at the given index relative to the mins, as is.
+	 * Does not fix the index, so it must be within the bounds.
+	 * @param i The x index, from 0 to width - 1.
+	 * @param j The y index, from 0 to height - 1.
+	 * @param value The value to store.
+	 */
+	protected void store(int i, int j, double value)
+	{
+		noise[i][j] = value;
+	}
+	
 	/**
 	 * Ensures the given value is within min and max using the given flag to wrap or not.
+	 * Power of 2 sizes wrap with a mask instead of a division.
 	 * @param val The value to fix.
 	 * @param min The min possible value.
 	 * @param max The max possible value.
 	 * @param wrap True to wrap, false to clip.
 	 * @return The fixed value.
 	 */
-	private static final int fix(int val, int min, int max, boolean wrap)
+	protected static final int fix(int val, int min, int max, boolean wrap)
 	{
 		if(wrap)
 		{
+			int size = max - min + 1;
+			//power of 2, the low bits are the remainder, even for negatives
+			if((size & (size - 1)) == 0)
+			{
+				return ((val - min) & (size - 1)) + min;
+			}
 			return Util.wrap(val, min, max);
 		}else
 		{
-			return Util.clip(val, min, max);
+			//compiles to conditional moves instead of branches
+			return Math.max(min, Math.min(max, val));
+		}
+	}
+	
+	/**
+	 * An operation on a single value, for map.
+	 */
+	public static interface Operator
+	{
+		/**
+		 * Returns the result of this operation for the given value.
+		 * @param value The value.
+		 * @return The result.
+		 */
+		public double apply(double value);
+	}
+	
+	/**
+	 * The min, max, mean and variance of a set of values.
+	 */
+	public static final class Stats
+	{
+		/**The number of values.*/
+		public final long count;
+		/**The smallest value.*/
+		public final double min;
+		/**The largest value.*/
+		public final double max;
+		/**The mean of the values.*/
+		public final double mean;
+		/**The population variance of the values.*/
+		public final double variance;
+		//sum of squared differences from the mean
+		private final double m2;
+		
+		Stats(long n, double mi, double ma, double me, double sumSq)
+		{
+			count = n;
+			min = mi;
+			max = ma;
+			mean = me;
+			m2 = sumSq;
+			variance = n == 0 ? 0 : sumSq / n;
+		}
+		
+		/**
+		 * Combines the given stats in order into the stats of all their values together.
+		 * @param parts The stats to combine.
+		 * @return The combined stats.
+		 */
+		static Stats merge(Stats[] parts)
+		{
+			long count = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double mean = 0;
+			double m2 = 0;
+			for(Stats part : parts)
+			{
+				if(part.count == 0)
+				{
+					continue;
+				}
+				//Chan et al.'s pairwise combination
+				long total = count + part.count;
+				double delta = part.mean - mean;
+				mean += delta * part.count / total;
+				m2 += part.m2 + (delta * delta * count * part.count / total);
+				count = total;
+				min = Math.min(min, part.min);
+				max = Math.max(max, part.max);
+			}
+			return new Stats(count, min, max, mean, m2);
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "Stats[count=" + count + ", min=" + min + ", max=" + max + ", mean=" + mean + ", variance=" + variance + "]";
 		}
 	}
 }
@@ -0,0 +1,426 @@
+package noise;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 
+ * Saves and loads NoiseArrays in a compact binary format, through NIO channels.
+ * The file starts with a HEADER_BYTES header of little endian ints:
+ * magic, version, minX, minY, maxX, maxY, wrap flags (1 = wrapX, 2 = wrapY), bytes per value (8 or 4),
+ * compression flags (DELTA, DEFLATE) and rows per chunk.
+ * The values follow row major in chunks of that many rows, each chunk is its length in bytes followed by its payload.
+ * A payload is the chunk's values as little endian doubles or floats, with each value replaced by the difference
+ * of its bits from the value before it in the row if DELTA is set, and the whole payload deflated if DEFLATE is set.
+ * Chunks are compressed on their own, so a chunk can be read without the chunks before it once their lengths are known.
+ * Amplitude and offset are settings for incoming values and are not saved.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public final class NoiseArrayIO
+{
+	/**Marks the start of a saved noise array, "NOIA".*/
+	public static final int MAGIC = 0x4E4F4941;
+	/**The version of the format written.*/
+	public static final int VERSION = 1;
+	/**The size of the header before the chunks.*/
+	public static final int HEADER_BYTES = 40;
+	/**Compression flag, stores the differences between the bits of neighbouring values, which deflate better.*/
+	public static final int DELTA = 1;
+	/**Compression flag, deflates each chunk.*/
+	public static final int DEFLATE = 2;
+	/**The default number of rows per chunk.*/
+	public static final int CHUNK_ROWS = 64;
+	
+	private NoiseArrayIO()
+	{
+	}
+	
+	/**
+	 * Saves the given array to the given file as uncompressed doubles.
+	 * @param array The array to save.
+	 * @param file The file to save to, overwritten.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void save(NoiseArray array, File file) throws IOException
+	{
+		save(array, file, false, 0, CHUNK_ROWS);
+	}
+	
+	/**
+	 * Saves the given array to the given file.
+	 * @param array The array to save.
+	 * @param file The file to save to, overwritten.
+	 * @param floats True to save the values as floats, losing precision.
+	 * @param compression The compression flags, DELTA and/or DEFLATE, or 0 for none.
+	 * @param chunkRows The number of rows per chunk.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void save(NoiseArray array, File file, boolean floats, int compression, int chunkRows) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(file);
+		try
+		{
+			write(array, out.getChannel(), floats, compression, chunkRows);
+		}finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Loads the array saved in the given file into a new NoiseArray.
+	 * @param file The file to load.
+	 * @return The array.
+	 * @throws IOException If the file can't be read or is not a saved noise array.
+	 */
+	public static NoiseArray load(File file) throws IOException
+	{
+		return load(file, null);
+	}
+	
+	/**
+	 * Loads the array saved in the given file into the given array, setting its bounds and wrapping.
+	 * @param file The file to load.
+	 * @param array The array to load into, or null for a new NoiseArray.
+	 * @return The array loaded into.
+	 * @throws IOException If the file can't be read or is not a saved noise array.
+	 */
+	public static NoiseArray load(File file, NoiseArray array) throws IOException
+	{
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			return read(in.getChannel(), array);
+		}finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Writes the given array to the given channel.
+	 * @param array The array to write.
+	 * @param out The channel to write to.
+	 * @param floats True to write the values as floats, losing precision.
+	 * @param compression The compression flags, DELTA and/or DEFLATE, or 0 for none.
+	 * @param chunkRows The number of rows per chunk.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void write(NoiseArray array, WritableByteChannel out, boolean floats, int compression, int chunkRows) throws IOException
+	{
+		int w = array.getWidth();
+		int h = array.getHeight();
+		int valueBytes = floats ? 4 : 8;
+		if(chunkRows <= 0 || (long)chunkRows * w * valueBytes > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Bad rows per chunk: " + chunkRows);
+		}
+		if((compression & ~(DELTA | DEFLATE)) != 0)
+		{
+			throw new IllegalArgumentException("Unknown compression flags: " + compression);
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(array.minX).putInt(array.minY).putInt(array.maxX).putInt(array.maxY);
+		header.putInt((array.wrapX ? 1 : 0) | (array.wrapY ? 2 : 0)).putInt(valueBytes).putInt(compression).putInt(chunkRows);
+		header.flip();
+		writeFully(out, header);
+		
+		//one chunk of raw values, and its deflated form
+		ByteBuffer raw = ByteBuffer.allocate(Math.min(chunkRows, h) * w * valueBytes).order(ByteOrder.LITTLE_ENDIAN);
+		byte[] packed = (compression & DEFLATE) != 0 ? new byte[raw.capacity() + 64] : null;
+		ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		double[] row = new double[w];
+		Deflater deflater = (compression & DEFLATE) != 0 ? new Deflater(Deflater.BEST_SPEED) : null;
+		try
+		{
+			for(int start = 0; start < h; start += chunkRows)
+			{
+				int end = Math.min(h, start + chunkRows);
+				raw.clear();
+				for(int y = start; y < end; y++)
+				{
+					array.getRow(y, row);
+					putRow(raw, row, floats, (compression & DELTA) != 0);
+				}
+				raw.flip();
+				
+				ByteBuffer payload = raw;
+				if(deflater != null)
+				{
+					deflater.reset();
+					deflater.setInput(raw.array(), 0, raw.limit());
+					deflater.finish();
+					int size = 0;
+					while(!deflater.finished())
+					{
+						if(size == packed.length)
+						{
+							//incompressible, grow
+							byte[] bigger = new byte[packed.length * 2];
+							System.arraycopy(packed, 0, bigger, 0, size);
+							packed = bigger;
+						}
+						size += deflater.deflate(packed, size, packed.length - size);
+					}
+					payload = ByteBuffer.wrap(packed, 0, size);
+				}
+				
+				length.clear();
+				length.putInt(payload.remaining()).flip();
+				writeFully(out, length);
+				writeFully(out, payload);
+			}
+		}finally
+		{
+			if(deflater != null)
+			{
+				deflater.end();
+			}
+		}
+	}
+	
+	/**
+	 * Reads an array from the given channel into the given array, setting its bounds and wrapping.
+	 * The values are stored as is, without amplitude or offset. Tracks the stored values if the array tracks its range.
+	 * @param in The channel to read from.
+	 * @param array The array to read into, or null for a new NoiseArray.
+	 * @return The array read into.
+	 * @throws IOException If the channel can't be read or does not hold a saved noise array.
+	 */
+	public static NoiseArray read(ReadableByteChannel in, NoiseArray array) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(in, header);
+		header.flip();
+		if(header.getInt() != MAGIC)
+		{
+			throw new IOException("Not a saved noise array");
+		}
+		int version = header.getInt();
+		if(version != VERSION)
+		{
+			throw new IOException("Unknown noise array version: " + version);
+		}
+		int miX = header.getInt();
+		int miY = header.getInt();
+		int maX = header.getInt();
+		int maY = header.getInt();
+		int wrap = header.getInt();
+		int valueBytes = header.getInt();
+		int compression = header.getInt();
+		int chunkRows = header.getInt();
+		long w = (long)maX - miX + 1;
+		long h = (long)maY - miY + 1;
+		if(w <= 0 || h <= 0 || w > Integer.MAX_VALUE || h > Integer.MAX_VALUE || (valueBytes != 8 && valueBytes != 4) ||
+				chunkRows <= 0 || (long)chunkRows * w * valueBytes > Integer.MAX_VALUE - 8)
+		{
+			throw new IOException("Corrupt noise array header");
+		}
+		if((compression & ~(DELTA | DEFLATE)) != 0)
+		{
+			throw new IOException("Unknown noise array compression: " + compression);
+		}
+		
+		if(array == null)
+		{
+			array = new NoiseArray((int)w, (int)h);
+		}
+		array.setBounds(miX, miY, maX, maY);
+		array.wrapX = (wrap & 1) != 0;
+		array.wrapY = (wrap & 2) != 0;
+		
+		boolean floats = valueBytes == 4;
+		ByteBuffer raw = ByteBuffer.allocate((int)Math.min(chunkRows, h) * (int)w * valueBytes).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer packed = (compression & DEFLATE) != 0 ? ByteBuffer.allocate(raw.capacity() + 64) : null;
+		ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		double[] row = new double[(int)w];
+		Inflater inflater = (compression & DEFLATE) != 0 ? new Inflater() : null;
+		try
+		{
+			for(int start = 0; start < h; start += chunkRows)
+			{
+				int end = (int)Math.min(h, start + chunkRows);
+				int rawBytes = (end - start) * (int)w * valueBytes;
+				length.clear();
+				readFully(in, length);
+				length.flip();
+				int size = length.getInt();
+				
+				raw.clear();
+				if(inflater != null)
+				{
+					if(size < 0)
+					{
+						throw new IOException("Corrupt noise array chunk");
+					}
+					if(size > packed.capacity())
+					{
+						packed = ByteBuffer.allocate(size);
+					}
+					packed.clear().limit(size);
+					readFully(in, packed);
+					inflater.reset();
+					inflater.setInput(packed.array(), 0, size);
+					try
+					{
+						if(inflater.inflate(raw.array(), 0, rawBytes) != rawBytes || !inflater.finished())
+						{
+							throw new IOException("Corrupt noise array chunk");
+						}
+					}catch(DataFormatException ex)
+					{
+						throw new IOException("Corrupt noise array chunk", ex);
+					}
+					raw.limit(rawBytes);
+				}else
+				{
+					if(size != rawBytes)
+					{
+						throw new IOException("Corrupt noise array chunk");
+					}
+					raw.limit(rawBytes);
+					readFully(in, raw);
+					raw.flip();
+				}
+				
+				for(int y = start; y < end; y++)
+				{
+					getRow(raw, row, floats, (compression & DELTA) != 0);
+					for(int i = 0; i < row.length; i++)
+					{
+						array.store(i, y, row[i]);
+					}
+					array.trackRow(y);
+				}
+			}
+		}finally
+		{
+			if(inflater != null)
+			{
+				inflater.end();
+			}
+		}
+		return array;
+	}
+	
+	/**
+	 * Puts the given row of values into the given buffer.
+	 * @param raw The buffer to put into.
+	 * @param row The values.
+	 * @param floats True to put floats instead of doubles.
+	 * @param delta True to put the differences between the bits of each value and the value before it.
+	 */
+	private static void putRow(ByteBuffer raw, double[] row, boolean floats, boolean delta)
+	{
+		if(floats)
+		{
+			int prev = 0;
+			for(int i = 0; i < row.length; i++)
+			{
+				int bits = Float.floatToRawIntBits((float)row[i]);
+				raw.putInt(delta ? bits - prev : bits);
+				prev = bits;
+			}
+		}else
+		{
+			if(delta)
+			{
+				long prev = 0;
+				for(int i = 0; i < row.length; i++)
+				{
+					long bits = Double.doubleToRawLongBits(row[i]);
+					raw.putLong(bits - prev);
+					prev = bits;
+				}
+			}else
+			{
+				raw.asDoubleBuffer().put(row);
+				raw.position(raw.position() + (row.length * 8));
+			}
+		}
+	}
+	
+	/**
+	 * Gets the next row of values from the given buffer, undoing putRow.
+	 * @param raw The buffer to get from.
+	 * @param row The array to get into.
+	 * @param floats True to get floats instead of doubles.
+	 * @param delta True if the buffer holds the differences between the bits of each value and the value before it.
+	 */
+	private static void getRow(ByteBuffer raw, double[] row, boolean floats, boolean delta)
+	{
+		if(floats)
+		{
+			int prev = 0;
+			for(int i = 0; i < row.length; i++)
+			{
+				int bits = raw.getInt();
+				if(delta)
+				{
+					bits += prev;
+					prev = bits;
+				}
+				row[i] = Float.intBitsToFloat(bits);
+			}
+		}else
+		{
+			if(delta)
+			{
+				long prev = 0;
+				for(int i = 0; i < row.length; i++)
+				{
+					prev += raw.getLong();
+					row[i] = Double.longBitsToDouble(prev);
+				}
+			}else
+			{
+				raw.asDoubleBuffer().get(row);
+				raw.position(raw.position() + (row.length * 8));
+			}
+		}
+	}
+	
+	/**
+	 * Writes all of the given buffer to the given channel.
+	 * @param out The channel.
+	 * @param buffer The buffer.
+	 * @throws IOException If the channel can't be written.
+	 */
+	private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			out.write(buffer);
+		}
+	}
+	
+	/**
+	 * Reads from the given channel until the given buffer is full.
+	 * @param in The channel.
+	 * @param buffer The buffer.
+	 * @throws IOException If the channel can't be read or ends first.
+	 */
+	private static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			if(in.read(buffer) < 0)
+			{
+				throw new EOFException("Saved noise array is truncated");
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package noise;
+
+/**
+ * 
+ * NoiseArray that shows a rectangle of another NoiseArray without copying it.
+ * Reads and writes go straight to the parent's storage, so anything filling the view fills that rectangle of the parent.
+ * The view has the same coordinates as the parent, its mins are the corner of the rectangle.
+ * It has its own amplitude, offset, wrapping and tracked range, which apply within the view only.
+ * Views that do not overlap can be filled by different threads at the same time.
+ * A view does not follow later changes to the parent's bounds.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class NoiseArrayView extends NoiseArray
+{
+	/**The array whose storage this view shares. Never a view itself.*/
+	public final NoiseArray parent;
+	//the index in the parent of this view's first value
+	private int baseX;
+	private int baseY;
+	
+	/**
+	 * Creates a new view of the given rectangle of the given array.
+	 * The rectangle must be within the array's bounds.
+	 * @param array The array to view.
+	 * @param x The x position of the rectangle's first column.
+	 * @param y The y position of the rectangle's first row.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 */
+	public NoiseArrayView(NoiseArray array, int x, int y, int w, int h)
+	{
+		//view the storage directly instead of going through another view
+		parent = array instanceof NoiseArrayView ? ((NoiseArrayView)array).parent : array;
+		setBounds(x, y, x + w - 1, y + h - 1);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		if(getWidth() <= 0 || getHeight() <= 0 || minX < parent.minX || minY < parent.minY || maxX > parent.maxX || maxY > parent.maxY)
+		{
+			throw new IllegalArgumentException("View (" + minX + ", " + minY + ") to (" + maxX + ", " + maxY +
+					") is not within (" + parent.minX + ", " + parent.minY + ") to (" + parent.maxX + ", " + parent.maxY + ")");
+		}
+		baseX = minX - parent.minX;
+		baseY = minY - parent.minY;
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return parent.create(w, h);
+	}
+	
+	/**
+	 * Returns 0, the values belong to the parent.
+	 * @return 0.
+	 */
+	@Override
+	public long memoryUsage()
+	{
+		return 0;
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return parent.load(baseX + i, baseY + j);
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		parent.store(baseX + i, baseY + j, value);
+	}
+	
+	@Override
+	public void getColumn(int x, double[] dst, int off)
+	{
+		if(parent.noise == null)
+		{
+			super.getColumn(x, dst, off);
+			return;
+		}
+		checkColumn(x, dst.length, off);
+		//the parent's columns are arrays already
+		System.arraycopy(parent.noise[baseX + x], baseY, dst, off, getHeight());
+	}
+	
+	@Override
+	public void setColumn(int x, double[] src, int off)
+	{
+		if(parent.noise == null)
+		{
+			super.setColumn(x, src, off);
+			return;
+		}
+		checkColumn(x, src.length, off);
+		//the parent's columns are arrays already
+		double[] column = parent.noise[baseX + x];
+		for(int j = 0; j < getHeight(); j++)
+		{
+			column[baseY + j] = (src[off + j] * amplitude) + offset;
+		}
+		trackColumn(x);
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		for(int i = 0; i < getWidth(); i++)
+		{
+			for(int j = 0; j < getHeight(); j++)
+			{
+				parent.store(baseX + i, baseY + j, value);
+			}
+		}
+	}
+}
@@ -1,37 +1,355 @@
 package noise;
 
-import util.FinalRandom;
+import util.LocalRandom;
 
 /**
  * 
  * Simple class that generates noise values from seeds and coords.
+ * Only caches immutable PreparedSeeds, so a single instance can safely be shared between threads.
  * 
  * @author F4113nb34st
  *
  */
 public class NoiseGenerator
 {
-	//random instance for rand values generation
-	private final FinalRandom rand = new FinalRandom();
+	//odd 64 bit constants used to spread the seed and each coord across the hash
+	private static final long PRIME_S = 0x9E3779B97F4A7C15L;
+	private static final long PRIME_X = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME_Y = 0x165667B19E3779F9L;
+	private static final long PRIME_Z = 0x27D4EB2F165667C5L;
+	
+	/**
+	 * The most recently used PreparedSeed. Immutable, so racing threads at worst prepare it twice.
+	 */
+	private volatile PreparedSeed last;
 	
 	/**
 	 * Generates a consistent, pseudo-random value between 0 and 1 for the given coords.
+	 * The coords are accumulated in a double and truncated to an int, so values saturate far from the origin.
+	 * Use the noise methods for coords outside the int range.
 	 * @param seed The long to seed the noise with.
 	 * @param coords The coords of the noise point.
 	 * @return The resulting noise value.
 	 */
 	public double noise_gen(long seed, double... coords)
 	{
-		rand.setSeed(seed);
-		double storage = 0;
-		for(double coord : coords)
+		return cached(seed).noise_gen(coords);
+	}
+	
+	/**
+	 * Generates a row of noise values, equal to calling noise_gen(seed, x + i, y) for i from 0 to len - 1.
+	 * @param seed The long to seed the noise with.
+	 * @param x The x coord of the first noise point.
+	 * @param y The y coord of the row.
+	 * @param dst The array to store the values in.
+	 * @param off The index in dst of the first value.
+	 * @param len The number of values to generate.
+	 */
+	public void noise_gen_row(long seed, int x, int y, double[] dst, int off, int len)
+	{
+		cached(seed).noise_gen_row(x, y, dst, off, len);
+	}
+	
+	/**
+	 * Returns the cached PreparedSeed for the given seed, preparing a new one if the seed changed.
+	 * @param seed The seed.
+	 * @return The PreparedSeed.
+	 */
+	private PreparedSeed cached(long seed)
+	{
+		PreparedSeed prepared = last;
+		if(prepared == null || prepared.seed != seed)
 		{
-			storage += coord;
-			storage *= (27 * rand.nextDouble()) + 31;
+			prepared = prepare(seed);
+			last = prepared;
 		}
-		//mangle inputs beyond recognition
+		return prepared;
+	}
+	
+	/**
+	 * Derives the per-coord multipliers of noise_gen for the given seed.
+	 * @param seed The seed.
+	 * @return The PreparedSeed holding the multipliers.
+	 */
+	public static PreparedSeed prepare(long seed)
+	{
+		return new PreparedSeed(seed);
+	}
+	
+	/**
+	 * 
+	 * A seed with its noise_gen coord multipliers already derived, so generating values is pure arithmetic.
+	 * Produces exactly the values noise_gen does for the same seed.
+	 * 
+	 * @author F4113nb34st
+	 *
+	 */
+	public static final class PreparedSeed
+	{
+		/**
+		 * The number of multipliers derived up front, coords beyond this derive theirs on each call.
+		 */
+		private static final int DIMENSIONS = 4;
+		
+		/**
+		 * The seed these multipliers were derived from.
+		 */
+		public final long seed;
+		/**
+		 * The random after drawing the up front multipliers. Never advanced, only copied.
+		 */
+		private final LocalRandom rest;
+		//the multipliers for each coord
+		private final double multiX;
+		private final double multiY;
+		private final double multiZ;
+		private final double multiW;
+		
+		/**
+		 * Creates a new PreparedSeed for the given seed.
+		 * @param s The seed.
+		 */
+		private PreparedSeed(long s)
+		{
+			seed = s;
+			//same sequence as FinalRandom.setSeed(seed) then nextDouble() per coord, but without the atomics
+			LocalRandom rand = new LocalRandom(seed);
+			multiX = (27 * rand.nextDouble()) + 31;
+			multiY = (27 * rand.nextDouble()) + 31;
+			multiZ = (27 * rand.nextDouble()) + 31;
+			multiW = (27 * rand.nextDouble()) + 31;
+			rest = rand;
+		}
+		
+		/**
+		 * Generates the value noise_gen(seed, x) would.
+		 * @param x The x coord.
+		 * @return The noise value.
+		 */
+		public double noise_gen(double x)
+		{
+			return mangle(x * multiX);
+		}
+		
+		/**
+		 * Generates the value noise_gen(seed, x, y) would.
+		 * @param x The x coord.
+		 * @param y The y coord.
+		 * @return The noise value.
+		 */
+		public double noise_gen(double x, double y)
+		{
+			return mangle(((x * multiX) + y) * multiY);
+		}
+		
+		/**
+		 * Generates the value noise_gen(seed, x, y, z) would.
+		 * @param x The x coord.
+		 * @param y The y coord.
+		 * @param z The z coord.
+		 * @return The noise value.
+		 */
+		public double noise_gen(double x, double y, double z)
+		{
+			return mangle(((((x * multiX) + y) * multiY) + z) * multiZ);
+		}
+		
+		/**
+		 * Generates the value noise_gen(seed, coords) would.
+		 * @param coords The coords.
+		 * @return The noise value.
+		 */
+		public double noise_gen(double... coords)
+		{
+			double storage = 0;
+			LocalRandom rand = null;
+			for(int i = 0; i < coords.length; i++)
+			{
+				storage += coords[i];
+				if(i < DIMENSIONS)
+				{
+					storage *= multi(i);
+				}else//beyond the prepared coords, derive the rest just like noise_gen
+				{
+					if(rand == null)
+					{
+						rand = rest.copy();
+					}
+					storage *= (27 * rand.nextDouble()) + 31;
+				}
+			}
+			return mangle(storage);
+		}
+		
+		/**
+		 * Generates a run of noise values, equal to calling noise_gen(x + i) for i from 0 to len - 1.
+		 * @param x The coord of the first noise point.
+		 * @param dst The array to store the values in.
+		 * @param off The index in dst of the first value.
+		 * @param len The number of values to generate.
+		 */
+		public void noise_gen_row(int x, double[] dst, int off, int len)
+		{
+			for(int i = 0; i < len; i++)
+			{
+				dst[off + i] = mangle((x + i) * multiX);
+			}
+		}
+		
+		/**
+		 * Generates a row of noise values, equal to calling noise_gen(x + i, y) for i from 0 to len - 1.
+		 * Leaves a tight loop the JIT can unroll.
+		 * @param x The x coord of the first noise point.
+		 * @param y The y coord of the row.
+		 * @param dst The array to store the values in.
+		 * @param off The index in dst of the first value.
+		 * @param len The number of values to generate.
+		 */
+		public void noise_gen_row(int x, int y, double[] dst, int off, int len)
+		{
+			for(int i = 0; i < len; i++)
+			{
+				dst[off + i] = mangle((((x + i) * multiX) + y) * multiY);
+			}
+		}
+		
+		/**
+		 * Returns the prepared multiplier for the given coord index.
+		 * @param index The coord index, less than DIMENSIONS.
+		 * @return The multiplier.
+		 */
+		private double multi(int index)
+		{
+			switch(index)
+			{
+				case 0:
+					return multiX;
+				case 1:
+					return multiY;
+				case 2:
+					return multiZ;
+				default:
+					return multiW;
+			}
+		}
+	}
+	
+	/**
+	 * Mangles the accumulated coords beyond recognition into a value between 0 and 1.
+	 * @param storage The accumulated coords.
+	 * @return The noise value.
+	 */
+	private static double mangle(double storage)
+	{
 		int n = (int)storage;
 		n = (n << 13) ^ n;
 		return ((1.0 - ((n * (n * n * 15731 + 789221) + 1376312589) & 0x7fffffff) / 1073741824.0) * .5) + .5;
 	}
+	
+	/**
+	 * Generates a consistent, pseudo-random value between 0 and 1 for the given coord.
+	 * Unlike noise_gen this holds no state, so it never allocates or locks.
+	 * Coords use all 64 bits, so it does not saturate or repeat far from the origin.
+	 * Note: does not produce the same values as noise_gen.
+	 * @param seed The long to seed the noise with.
+	 * @param x The x coord of the noise point.
+	 * @return The resulting noise value.
+	 */
+	public static double noise(long seed, long x)
+	{
+		return toDouble(avalanche((seed * PRIME_S) + (x * PRIME_X)));
+	}
+	
+	/**
+	 * Generates a consistent, pseudo-random value between 0 and 1 for the given coords.
+	 * Unlike noise_gen this holds no state, so it never allocates or locks.
+	 * Coords use all 64 bits, so it does not saturate or repeat far from the origin.
+	 * Note: does not produce the same values as noise_gen.
+	 * @param seed The long to seed the noise with.
+	 * @param x The x coord of the noise point.
+	 * @param y The y coord of the noise point.
+	 * @return The resulting noise value.
+	 */
+	public static double noise(long seed, long x, long y)
+	{
+		return toDouble(avalanche((seed * PRIME_S) + (x * PRIME_X) + (y * PRIME_Y)));
+	}
+	
+	/**
+	 * Generates a consistent, pseudo-random value between 0 and 1 for the given coords.
+	 * Unlike noise_gen this holds no state, so it never allocates or locks.
+	 * Coords use all 64 bits, so it does not saturate or repeat far from the origin.
+	 * Note: does not produce the same values as noise_gen.
+	 * @param seed The long to seed the noise with.
+	 * @param x The x coord of the noise point.
+	 * @param y The y coord of the noise point.
+	 * @param z The z coord of the noise point.
+	 * @return The resulting noise value.
+	 */
+	public static double noise(long seed, long x, long y, long z)
+	{
+		return toDouble(avalanche((seed * PRIME_S) + (x * PRIME_X) + (y * PRIME_Y) + (z * PRIME_Z)));
+	}
+	
+	/**
+	 * Generates a run of noise values, equal to calling noise(seed, x + i) for i from 0 to len - 1.
+	 * @param seed The long to seed the noise with.
+	 * @param x The coord of the first noise point.
+	 * @param dst The array to store the values in.
+	 * @param off The index in dst of the first value.
+	 * @param len The number of values to generate.
+	 */
+	public static void noise(long seed, long x, double[] dst, int off, int len)
+	{
+		long base = seed * PRIME_S;
+		for(int i = 0; i < len; i++)
+		{
+			dst[off + i] = toDouble(avalanche(base + ((x + i) * PRIME_X)));
+		}
+	}
+	
+	/**
+	 * Generates a row of noise values, equal to calling noise(seed, x + i, y) for i from 0 to len - 1.
+	 * @param seed The long to seed the noise with.
+	 * @param x The x coord of the first noise point.
+	 * @param y The y coord of the row.
+	 * @param dst The array to store the values in.
+	 * @param off The index in dst of the first value.
+	 * @param len The number of values to generate.
+	 */
+	public static void noise(long seed, long x, long y, double[] dst, int off, int len)
+	{
+		//everything but x is fixed for the row
+		long base = (seed * PRIME_S) + (y * PRIME_Y);
+		for(int i = 0; i < len; i++)
+		{
+			dst[off + i] = toDouble(avalanche(base + ((x + i) * PRIME_X)));
+		}
+	}
+	
+	/**
+	 * Mixes the bits of the given value so that every input bit affects every output bit.
+	 * (the 64 bit finalizer from MurmurHash3)
+	 * @param h The value to mix.
+	 * @return The mixed value.
+	 */
+	private static long avalanche(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * Converts the top 53 bits of the given hash to a double between 0 (inclusive) and 1 (exclusive).
+	 * @param h The hash.
+	 * @return The double value.
+	 */
+	private static double toDouble(long h)
+	{
+		return (h >>> 11) * 0x1.0p-53;
+	}
 }
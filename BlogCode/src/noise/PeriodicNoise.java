@@ -7,7 +7,7 @@ package noise;
  * @author F4113nb34st
  *
  */
-public abstract class PeriodicNoise extends SeededNoise
+public abstract class PeriodicNoise extends SeededNoise implements WorldNoise
 {
 	/**
 	 * The x period of this noise.
@@ -33,6 +33,73 @@ public abstract class PeriodicNoise extends SeededNoise
 	
 	public abstract PeriodicNoise copy();
 	
+	/**
+	 * Fills the given array with this noise sampled at the given world coords, so array (0, 0) is world (x, y).
+	 * Lattice points are hashed from their 64 bit world cells (always with the fast hash) instead of tiling over the array,
+	 * so fills at neighbouring coords line up exactly and coords far from the origin never repeat.
+	 * @param noise The array to fill.
+	 * @param x The world x coord of the array's first column.
+	 * @param y The world y coord of the array's first row.
+	 */
+	public abstract void fillArray(NoiseArray noise, long x, long y);
+	
+	@Override
+	public void fillWorld(NoiseArray noise)
+	{
+		fillArray(noise, noise.minX, noise.minY);
+	}
+	
+	@Override
+	public double sample(double x, double y)
+	{
+		return sample(seed, periodX, periodY, x, y);
+	}
+	
+	@Override
+	public void sample(double[] xs, double[] ys, double[] dst, int off, int len)
+	{
+		for(int i = off; i < off + len; i++)
+		{
+			dst[i] = sample(xs[i], ys[i]);
+		}
+	}
+	
+	/**
+	 * Returns this noise with the given seed and periods at the given world coords, without changing this noise.
+	 * Used by sample and FractalNoise.
+	 * @param s The seed to use.
+	 * @param px The x period to use.
+	 * @param py The y period to use.
+	 * @param x The world x coord.
+	 * @param y The world y coord.
+	 * @return The noise value.
+	 */
+	protected abstract double sample(long s, int px, int py, double x, double y);
+	
+	/**
+	 * Returns the cell containing the given world coord, like Util.floorDiv for whole coords.
+	 * @param coord The world coord.
+	 * @param period The period.
+	 * @return The cell.
+	 */
+	protected static long cell(double coord, int period)
+	{
+		return (long)Math.floor(coord / period);
+	}
+	
+	/**
+	 * Returns the position of the given world coord in the given cell, from 0 to 1.
+	 * Exactly Util.floorMod(coord, period) / (double)period for whole coords, like the world fills.
+	 * @param coord The world coord.
+	 * @param cell The cell containing the coord.
+	 * @param period The period.
+	 * @return The fraction.
+	 */
+	protected static double frac(double coord, long cell, int period)
+	{
+		return (coord - ((double)cell * period)) / (double)period;
+	}
+	
 	/**
 	 * Fills the given array with noise of the given seed and octave.
 	 * Used by FractalNoise.
@@ -40,10 +107,26 @@ public abstract class PeriodicNoise extends SeededNoise
 	 * @param s The seed to use.
 	 * @param octave The octave of the noise.
 	 */
-	protected void fillArray(NoiseArray array, long s, int octave)
+	protected void fillOctave(NoiseArray array, long s, int octave)
 	{
 		seed = s;
 		periodX = periodY = 1 << octave;
 		fillArray(array);
 	}
+	
+	/**
+	 * Fills the given array with noise of the given seed and octave, sampled at the given world coords.
+	 * Used by FractalNoise.
+	 * @param array The array to fill.
+	 * @param s The seed to use.
+	 * @param octave The octave of the noise.
+	 * @param x The world x coord of the array's first column.
+	 * @param y The world y coord of the array's first row.
+	 */
+	protected void fillOctave(NoiseArray array, long s, int octave, long x, long y)
+	{
+		seed = s;
+		periodX = periodY = 1 << octave;
+		fillArray(array, x, y);
+	}
 }
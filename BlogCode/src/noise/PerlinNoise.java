@@ -2,6 +2,7 @@ package noise;
 
 import util.FastMath;
 import util.Interpolation;
+import util.Util;
 import util.concurrent.ArrayTask;
 import util.concurrent.ThreadPool;
 
@@ -14,11 +15,6 @@ import util.concurrent.ThreadPool;
  */
 public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoise
 {
-	/**
-	 * The NoiseGenerator instance for this PerlinNoise.
-	 */
-	private NoiseGenerator gen = new NoiseGenerator();
-	
 	/**
 	 * Creates a new PerlinNoise
 	 */
@@ -41,7 +37,9 @@ public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoi
 	@Override
 	public PeriodicNoise copy()
 	{
-		return new PerlinNoise(seed, periodX, periodY);
+		PeriodicNoise copy = new PerlinNoise(seed, periodX, periodY);
+		copy.fastHash = fastHash;
+		return copy;
 	}
 	
 	@Override
@@ -57,41 +55,121 @@ public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoi
 		//for all columns
 		for(int x = 0; x < noise.getWidth(); x++)
 		{
-			//find botX
-			int botX = x / periodX;
-			//find topX
-			int topX = (botX + 1) % gradients.length;
-			//find x fraction portion
-			double fracX = (x % (double)periodX) / periodX;
+			fillColumn(noise, gradients, 0, 0, x);
+		}
+	}
+	
+	@Override
+	public void fillArray(NoiseArray noise, long x, long y)
+	{
+		//create a gradient map covering every cell the array touches, plus the top neighbours of the last ones
+		long cellX = Util.floorDiv(x, periodX);
+		long cellY = Util.floorDiv(y, periodY);
+		int baseW = (int)(Util.floorDiv(x + noise.getWidth() - 1, periodX) - cellX) + 2;
+		int baseH = (int)(Util.floorDiv(y + noise.getHeight() - 1, periodY) - cellY) + 2;
+		double[][][] gradients = getWorldGradientMap(cellX, cellY, baseW, baseH);
+		
+		//for all columns
+		for(int i = 0; i < noise.getWidth(); i++)
+		{
+			fillColumn(noise, gradients, x, y, i);
+		}
+	}
+	
+	@Override
+	protected double sample(long s, int px, int py, double x, double y)
+	{
+		//find the cell and the fraction portions
+		long botX = cell(x, px);
+		long botY = cell(y, py);
+		double fracX = frac(x, botX, px);
+		double fracY = frac(y, botY, py);
+		
+		//find values for x's and y's, with the same gradients as the world gradient map
+		double valBXBY = gradientDot(s, botX, botY, fracX, fracY);
+		double valTXBY = gradientDot(s, botX + 1, botY, fracX - 1D, fracY);
+		double valBXTY = gradientDot(s, botX, botY + 1, fracX, fracY - 1D);
+		double valTXTY = gradientDot(s, botX + 1, botY + 1, fracX - 1D, fracY - 1D);
+		
+		//fade fracs
+		double newFracX = fade(fracX);
+		double newFracY = fade(fracY);
+		
+		//perform y interps
+		double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
+		double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
+		return Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY);
+	}
+	
+	/**
+	 * Performs a dotProduct on the gradient of the given world cell and the given point, without building the gradient.
+	 * @param s The seed.
+	 * @param cellX The x cell.
+	 * @param cellY The y cell.
+	 * @param x The x value of the point.
+	 * @param y The y value of the point.
+	 * @return The dot product.
+	 */
+	private double gradientDot(long s, long cellX, long cellY, double x, double y)
+	{
+		double angle = NoiseGenerator.noise(s, cellX, cellY) * Math.PI * 2;
+		return (FastMath.cos(angle) * x) + (FastMath.sin(angle) * y);
+	}
+	
+	/**
+	 * Fills a column of the given array with perlin noise.
+	 * @param noise The array to fill.
+	 * @param gradients The gradient map, starting at the cell containing the world origin.
+	 * @param originX The world x coord of the array's first column.
+	 * @param originY The world y coord of the array's first row.
+	 * @param x The column to fill.
+	 */
+	private void fillColumn(NoiseArray noise, double[][][] gradients, long originX, long originY, int x)
+	{
+		//find the world x
+		long worldX = originX + x;
+		//find botX
+		int botX = (int)(Util.floorDiv(worldX, periodX) - Util.floorDiv(originX, periodX));
+		//find topX
+		int topX = (botX + 1) % gradients.length;
+		//find x fraction portion
+		double fracX = Util.floorMod(worldX, periodX) / (double)periodX;
+		//find the first cell's y
+		long cellY = Util.floorDiv(originY, periodY);
+		
+		//the column's values, set all at once
+		double[] column = new double[noise.getHeight()];
+		
+		//for all rows
+		for(int y = 0; y < column.length; y++)
+		{
+			//find the world y
+			long worldY = originY + y;
+			//find botY
+			int botY = (int)(Util.floorDiv(worldY, periodY) - cellY);
+			//find topY
+			int topY = (botY + 1) % gradients[0].length;
+			//find y fraction portion
+			double fracY = Util.floorMod(worldY, periodY) / (double)periodY;
 			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
-			{
-				//find botY
-				int botY = y / periodY;
-				//find topY
-				int topY = (botY + 1) % gradients[0].length;
-				//find y fraction portion
-				double fracY = (y % (double)periodY) / periodY;
-				
-				//find values for x's and y's
-				double valBXBY = dotProduct(gradients[botX][botY], fracX, fracY);
-				double valTXBY = dotProduct(gradients[topX][botY], fracX - 1D, fracY);
-				double valBXTY = dotProduct(gradients[botX][topY], fracX, fracY - 1D);
-				double valTXTY = dotProduct(gradients[topX][topY], fracX - 1D, fracY - 1D);
-				
-				//fade fracs
-				double newFracX = fade(fracX);
-				double newFracY = fade(fracY);
-				
-				//perform y interps
-				double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
-				double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
-				
-				//set value
-				noise.setRelative(x, y, Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY));
-			}
+			//find values for x's and y's
+			double valBXBY = dotProduct(gradients[botX][botY], fracX, fracY);
+			double valTXBY = dotProduct(gradients[topX][botY], fracX - 1D, fracY);
+			double valBXTY = dotProduct(gradients[botX][topY], fracX, fracY - 1D);
+			double valTXTY = dotProduct(gradients[topX][topY], fracX - 1D, fracY - 1D);
+			
+			//fade fracs
+			double newFracX = fade(fracX);
+			double newFracY = fade(fracY);
+			
+			//perform y interps
+			double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
+			double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
+			
+			//set value
+			column[y] = Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY);
 		}
+		noise.setColumn(x, column);
 	}
 	
 	/**
@@ -105,22 +183,60 @@ public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoi
 	{
 		//create the map
 		double[][][] gradients = new double[width][height][2];
+		//generate a whole row of angles at once
+		double[] row = new double[width];
 		//for all values
-		for(int i = 0; i < gradients.length; i++)
+		for(int j = 0; j < height; j++)
 		{
-			for(int j = 0; j < gradients[0].length; j++)
-			{
-				//get random angle for this point
-				double angle = gen.noise_gen(seed, i, j) * Math.PI * 2;
-				//set x and y
-				gradients[i][j][0] = FastMath.cos(angle);
-				gradients[i][j][1] = FastMath.sin(angle);
-			}
+			valueRow(0, j, row, 0, width);
+			setGradientRow(gradients, j, row);
 		}
 		//return map
 		return gradients;
 	}
 	
+	/**
+	 * Generates a gradient map of the given size whose first gradient is at the given world cell.
+	 * @param cellX The world x cell of the first gradient.
+	 * @param cellY The world y cell of the first gradient.
+	 * @param width The width of the gradient map.
+	 * @param height The height of the gradient map.
+	 * @return The resulting gradient map.
+	 */
+	private double[][][] getWorldGradientMap(long cellX, long cellY, int width, int height)
+	{
+		//create the map
+		double[][][] gradients = new double[width][height][2];
+		//generate a whole row of angles at once
+		double[] row = new double[width];
+		//for all values
+		for(int j = 0; j < height; j++)
+		{
+			NoiseGenerator.noise(seed, cellX, cellY + j, row, 0, width);
+			setGradientRow(gradients, j, row);
+		}
+		//return map
+		return gradients;
+	}
+	
+	/**
+	 * Sets a row of the given gradient map from a row of noise values.
+	 * @param gradients The gradient map.
+	 * @param j The row to set.
+	 * @param row The noise values of the row.
+	 */
+	private void setGradientRow(double[][][] gradients, int j, double[] row)
+	{
+		for(int i = 0; i < gradients.length; i++)
+		{
+			//get random angle for this point
+			double angle = row[i] * Math.PI * 2;
+			//set x and y
+			gradients[i][j][0] = FastMath.cos(angle);
+			gradients[i][j][1] = FastMath.sin(angle);
+		}
+	}
+	
 	/**
 	 * Performs a dotProduct on the given gradient and point.
 	 * @param gradient The gradient.
@@ -180,40 +296,7 @@ public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoi
 		@Override
 		public void run(int x)
 		{
-			//find botX
-			int botX = x / periodX;
-			//find topX
-			int topX = (botX + 1) % gradients.length;
-			//find x fraction portion
-			double fracX = (x % (double)periodX) / periodX;
-			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
-			{
-				//find botY
-				int botY = y / periodY;
-				//find topY
-				int topY = (botY + 1) % gradients[0].length;
-				//find y fraction portion
-				double fracY = (y % (double)periodY) / periodY;
-				
-				//find values for x's and y's
-				double valBXBY = dotProduct(gradients[botX][botY], fracX, fracY);
-				double valTXBY = dotProduct(gradients[topX][botY], fracX - 1D, fracY);
-				double valBXTY = dotProduct(gradients[botX][topY], fracX, fracY - 1D);
-				double valTXTY = dotProduct(gradients[topX][topY], fracX - 1D, fracY - 1D);
-				
-				//fade fracs
-				double newFracX = fade(fracX);
-				double newFracY = fade(fracY);
-				
-				//perform y interps
-				double yBotInterp = Interpolation.LINEAR.interpolate(valBXBY, valTXBY, newFracX);
-				double yTopInterp = Interpolation.LINEAR.interpolate(valBXTY, valTXTY, newFracX);
-				
-				//set value
-				noise.setRelative(x, y, Interpolation.LINEAR.interpolate(yBotInterp, yTopInterp, newFracY));
-			}
+			fillColumn(noise, gradients, 0, 0, x);
 		}
 	}
 	
@@ -255,7 +338,7 @@ public final class PerlinNoise extends PeriodicNoise implements MultiThreadedNoi
 			for(int j = 0; j < gradients[0].length; j++)
 			{
 				//get random angle for this point
-				double angle = gen.noise_gen(seed, i, j) * Math.PI * 2;
+				double angle = value(i, j) * Math.PI * 2;
 				//set x and y
 				gradients[i][j][0] = FastMath.cos(angle);
 				gradients[i][j][1] = FastMath.sin(angle);
@@ -0,0 +1,143 @@
+package noise;
+
+/**
+ * 
+ * NoiseArray that quantizes its values to a fixed number of steps, the base of ByteNoiseArray and ShortNoiseArray.
+ * Incoming values are mapped with amplitude and offset like any NoiseArray, the result should be between 0 and 1,
+ * and is stored as the nearest of maxStep + 1 steps, clamped to the ends. Values read back as step / maxStep.
+ * The steps are stored unsigned and row major at index (j * stride) + i, subclasses only hold the storage.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public abstract class QuantizedNoiseArray extends NoiseArray
+{
+	/**The largest step.*/
+	public final int maxStep;
+	/**The distance in the storage between the starts of two rows. At least the width.*/
+	public int stride;
+	
+	/**
+	 * Creates a new QuantizedNoiseArray with the given largest step, width and height.
+	 * @param max The largest step.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	protected QuantizedNoiseArray(int max, int w, int h)
+	{
+		maxStep = max;
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new QuantizedNoiseArray with the given largest step, mins and maxs.
+	 * @param max The largest step.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	protected QuantizedNoiseArray(int max, int miX, int miY, int maX, int maY)
+	{
+		maxStep = max;
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	/**
+	 * Allocates new storage for the given number of steps, all 0.
+	 * @param size The number of steps.
+	 */
+	protected abstract void allocate(int size);
+	
+	/**
+	 * Returns the number of steps the storage holds.
+	 * @return The capacity.
+	 */
+	protected abstract int capacity();
+	
+	/**
+	 * Returns the step at the given index of the storage.
+	 * @param index The index.
+	 * @return The step, between 0 and maxStep.
+	 */
+	protected abstract int loadStep(int index);
+	
+	/**
+	 * Sets the step at the given index of the storage.
+	 * @param index The index.
+	 * @param step The step, between 0 and maxStep.
+	 */
+	protected abstract void storeStep(int index, int step);
+	
+	/**
+	 * Sets the steps from the given index to before the given end index of the storage.
+	 * @param from The first index.
+	 * @param to The index after the last one.
+	 * @param step The step, between 0 and maxStep.
+	 */
+	protected abstract void fillSteps(int from, int to, int step);
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		//keep the current stride while the rows still fit
+		if(stride == 0 || w > stride || ((long)h * stride) > capacity())
+		{
+			stride = w;
+			allocate(w * h);
+		}
+	}
+	
+	/**
+	 * Creates a new FlatNoiseArray, not a quantized one.
+	 * Scratch arrays hold partial sums like FractalNoise's octaves, quantizing those would add up the rounding errors,
+	 * so only the final values written into this array are quantized.
+	 */
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new FlatNoiseArray(w, h);
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		return loadStep((j * stride) + i) / (double)maxStep;
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		storeStep((j * stride) + i, quantize(value));
+	}
+	
+	@Override
+	protected void fill(double value)
+	{
+		int step = quantize(value);
+		//rows are contiguous when the stride matches the width
+		if(stride == getWidth())
+		{
+			fillSteps(0, getWidth() * getHeight(), step);
+		}else
+		{
+			for(int j = 0; j < getHeight(); j++)
+			{
+				fillSteps(j * stride, (j * stride) + getWidth(), step);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the step nearest to the given value, clamped to 0 and maxStep.
+	 * @param value The value, between 0 and 1.
+	 * @return The step.
+	 */
+	private int quantize(double value)
+	{
+		//NaN casts to 0
+		return Math.max(0, Math.min(maxStep, (int)((value * maxStep) + .5)));
+	}
+}
@@ -13,6 +13,16 @@ public abstract class SeededNoise extends Noise
 	 * The seed of this noise.
 	 */
 	public long seed;
+	/**
+	 * True to use the stateless hash instead of noise_gen.
+	 * Much faster, but produces different noise for the same seed.
+	 */
+	public boolean fastHash = false;
+	/**
+	 * The multipliers of the current seed, used when not using the fast hash.
+	 * Immutable, so threads sharing this noise can safely race to replace it.
+	 */
+	private NoiseGenerator.PreparedSeed prepared;
 	
 	/**
 	 * Creates a new SeededNoise with the given seed.
@@ -22,4 +32,101 @@ public abstract class SeededNoise extends Noise
 	{
 		seed = s;
 	}
+	
+	/**
+	 * Returns the PreparedSeed for this noise's seed, preparing a new one if the seed changed.
+	 * @return The PreparedSeed.
+	 */
+	protected final NoiseGenerator.PreparedSeed prepared()
+	{
+		NoiseGenerator.PreparedSeed p = prepared;
+		if(p == null || p.seed != seed)
+		{
+			p = NoiseGenerator.prepare(seed);
+			prepared = p;
+		}
+		return p;
+	}
+	
+	/**
+	 * Returns the noise value for the given coord with this noise's seed.
+	 * @param x The x coord.
+	 * @return The noise value.
+	 */
+	protected final double value(int x)
+	{
+		if(fastHash)
+		{
+			return NoiseGenerator.noise(seed, x);
+		}
+		return prepared().noise_gen(x);
+	}
+	
+	/**
+	 * Returns the noise value for the given coords with this noise's seed.
+	 * @param x The x coord.
+	 * @param y The y coord.
+	 * @return The noise value.
+	 */
+	protected final double value(int x, int y)
+	{
+		if(fastHash)
+		{
+			return NoiseGenerator.noise(seed, x, y);
+		}
+		return prepared().noise_gen(x, y);
+	}
+	
+	/**
+	 * Returns the noise value for the given coords with this noise's seed.
+	 * @param x The x coord.
+	 * @param y The y coord.
+	 * @param z The z coord.
+	 * @return The noise value.
+	 */
+	protected final double value(int x, int y, int z)
+	{
+		if(fastHash)
+		{
+			return NoiseGenerator.noise(seed, x, y, z);
+		}
+		return prepared().noise_gen(x, y, z);
+	}
+	
+	/**
+	 * Stores a run of noise values with this noise's seed, equal to calling value(x + i) for i from 0 to len - 1.
+	 * @param x The coord of the first value.
+	 * @param dst The array to store the values in.
+	 * @param off The index in dst of the first value.
+	 * @param len The number of values.
+	 */
+	protected final void valueRow(int x, double[] dst, int off, int len)
+	{
+		if(fastHash)
+		{
+			NoiseGenerator.noise(seed, x, dst, off, len);
+		}else
+		{
+			prepared().noise_gen_row(x, dst, off, len);
+		}
+	}
+	
+	/**
+	 * Stores a row of noise values with this noise's seed, equal to calling value(x + i, y) for i from 0 to len - 1.
+	 * @param x The x coord of the first value.
+	 * @param y The y coord of the row.
+	 * @param dst The array to store the values in.
+	 * @param off The index in dst of the first value.
+	 * @param len The number of values.
+	 */
+	protected final void valueRow(int x, int y, double[] dst, int off, int len)
+	{
+		if(fastHash)
+		{
+			NoiseGenerator.noise(seed, x, y, dst, off, len);
+		}else
+		{
+			prepared().noise_gen_row(x, y, dst, off, len);
+		}
+	}
 }
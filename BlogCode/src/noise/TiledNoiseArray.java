@@ -0,0 +1,469 @@
+package noise;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import util.concurrent.ArrayTask;
+import util.concurrent.ThreadPool;
+
+/**
+ * 
+ * Sparse NoiseArray that splits its area into TILE_SIZE x TILE_SIZE tiles, only allocated when first written to.
+ * Values in tiles that have not been written read as the background value (0 by default),
+ * so huge arrays that are only touched in a few places cost only the tiles touched.
+ * Tiles can be dropped again with dropTile to free them.
+ * Bulk operations like add and map store every position, so they allocate every tile and leave the array dense.
+ * Tiles are stored row major, tile (tx, ty) holds the values relative to the mins from (tx * TILE_SIZE, ty * TILE_SIZE) on.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public class TiledNoiseArray extends NoiseArray
+{
+	/**The width and height of a tile is 1 << TILE_SHIFT.*/
+	public static final int TILE_SHIFT = 8;
+	/**The width and height of a tile.*/
+	public static final int TILE_SIZE = 1 << TILE_SHIFT;
+	//mask for the position in a tile
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	
+	/**The value of every position in a tile that has not been written yet.*/
+	public double background = 0;
+	
+	//the allocated tiles, concurrent so multi threaded fills can allocate tiles at the same time
+	private final ConcurrentHashMap<Long, double[]> tiles = new ConcurrentHashMap<Long, double[]>();
+	//the last tile used by each thread, most accesses hit the same tile as the one before
+	private final ThreadLocal<Tile> last = new ThreadLocal<Tile>()
+	{
+		@Override
+		protected Tile initialValue()
+		{
+			return new Tile();
+		}
+	};
+	//changed whenever tiles are dropped, so no thread keeps using a dropped tile
+	private final AtomicInteger generation = new AtomicInteger();
+	
+	/**
+	 * Creates a new TiledNoiseArray with the given width and height.
+	 * @param w The width.
+	 * @param h The height.
+	 */
+	public TiledNoiseArray(int w, int h)
+	{
+		setBounds(w, h);
+	}
+	
+	/**
+	 * Creates a new TiledNoiseArray with the given mins and maxs.
+	 * @param miX The min x value.
+	 * @param miY The min y value.
+	 * @param maX The max x value.
+	 * @param maY The max y value.
+	 */
+	public TiledNoiseArray(int miX, int miY, int maX, int maY)
+	{
+		setBounds(miX, miY, maX, maY);
+	}
+	
+	@Override
+	protected void ensureCapacity()
+	{
+		//tiles are allocated as they are written
+	}
+	
+	@Override
+	public NoiseArray create(int w, int h)
+	{
+		return new TiledNoiseArray(w, h);
+	}
+	
+	@Override
+	public long memoryUsage()
+	{
+		return (long)tiles.size() * TILE_SIZE * TILE_SIZE * 8;
+	}
+	
+	/**
+	 * Returns the number of allocated tiles.
+	 * @return The number of tiles.
+	 */
+	public int getTileCount()
+	{
+		return tiles.size();
+	}
+	
+	/**
+	 * Drops the tile holding the given position, so it reads as the background again and its memory can be freed.
+	 * Ensures the position is within the bounds like get.
+	 * @param x The x position.
+	 * @param y The y position.
+	 * @return True if there was a tile to drop.
+	 */
+	public boolean dropTile(int x, int y)
+	{
+		x = fix(x, minX, maxX, wrapX) - minX;
+		y = fix(y, minY, maxY, wrapY) - minY;
+		long key = key(x >> TILE_SHIFT, y >> TILE_SHIFT);
+		boolean dropped = tiles.remove(key) != null;
+		generation.incrementAndGet();
+		return dropped;
+	}
+	
+	/**
+	 * Drops all tiles, so every position reads as the background.
+	 */
+	public void dropTiles()
+	{
+		tiles.clear();
+		generation.incrementAndGet();
+	}
+	
+	@Override
+	protected double load(int i, int j)
+	{
+		double[] tile = tile(key(i >> TILE_SHIFT, j >> TILE_SHIFT), false);
+		if(tile == null)
+		{
+			return background;
+		}
+		return tile[((j & TILE_MASK) << TILE_SHIFT) + (i & TILE_MASK)];
+	}
+	
+	@Override
+	protected void store(int i, int j, double value)
+	{
+		double[] tile = tile(key(i >> TILE_SHIFT, j >> TILE_SHIFT), true);
+		tile[((j & TILE_MASK) << TILE_SHIFT) + (i & TILE_MASK)] = value;
+	}
+	
+	/**
+	 * Returns the tile with the given key.
+	 * @param key The key of the tile.
+	 * @param allocate True to allocate the tile if it does not exist yet.
+	 * @return The tile, or null if it does not exist and allocate is false.
+	 */
+	private double[] tile(long key, boolean allocate)
+	{
+		Tile cached = last.get();
+		//read before the lookup, so a drop during it leaves the cached tile stale
+		int gen = generation.get();
+		if(cached.data != null && cached.key == key && cached.generation == gen)
+		{
+			return cached.data;
+		}
+		double[] data = tiles.get(key);
+		if(data == null)
+		{
+			if(!allocate)
+			{
+				return null;
+			}
+			//new tiles start as the background
+			data = new double[TILE_SIZE * TILE_SIZE];
+			if(background != 0)
+			{
+				Arrays.fill(data, background);
+			}
+			double[] existing = tiles.putIfAbsent(key, data);
+			if(existing != null)//another thread got there first
+			{
+				data = existing;
+			}
+		}
+		cached.key = key;
+		cached.data = data;
+		cached.generation = gen;
+		return data;
+	}
+	
+	/**
+	 * Finds the range of the allocated tiles only,
+	 * including the background when any position still reads as it.
+	 */
+	@Override
+	protected double[] findRange()
+	{
+		long[] keys = keys();
+		double[] mins = new double[keys.length];
+		double[] maxs = new double[keys.length];
+		for(int t = 0; t < keys.length; t++)
+		{
+			tileRange(keys[t], mins, maxs, t);
+		}
+		return combineRanges(mins, maxs);
+	}
+	
+	/**
+	 * Stores the range of the values in the bounds of the tile with the given key at the given index of mins and maxs.
+	 * Tiles left outside by a change of bounds have an empty range.
+	 */
+	private void tileRange(long key, double[] mins, double[] maxs, int t)
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double[] tile = tiles.get(key);
+		int tileW = tileWidth(key, getWidth());
+		int tileH = tileHeight(key, getHeight());
+		for(int j = 0; j < tileH; j++)
+		{
+			for(int index = j << TILE_SHIFT, end = index + tileW; index < end; index++)
+			{
+				min = Math.min(min, tile[index]);
+				max = Math.max(max, tile[index]);
+			}
+		}
+		mins[t] = min;
+		maxs[t] = max;
+	}
+	
+	/**
+	 * Combines the ranges of the tiles from tileRange, adding the background when any position still reads as it.
+	 */
+	private double[] combineRanges(double[] mins, double[] maxs)
+	{
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for(int t = 0; t < mins.length; t++)
+		{
+			min = Math.min(min, mins[t]);
+			max = Math.max(max, maxs[t]);
+		}
+		if(backgroundCount() > 0)
+		{
+			min = Math.min(min, background);
+			max = Math.max(max, background);
+		}
+		return new double[]{min, max};
+	}
+	
+	/**
+	 * Returns the number of positions in the bounds that are not in an allocated tile, so read as the background.
+	 */
+	private long backgroundCount()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		long count = (long)w * h;
+		for(Long key : tiles.keySet())
+		{
+			//tiles left outside by a change of bounds cover nothing
+			count -= (long)Math.max(0, tileWidth(key, w)) * Math.max(0, tileHeight(key, h));
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the keys of the allocated tiles, sorted so passes over them always go in the same order.
+	 * Must not be called while other threads are writing.
+	 */
+	private long[] keys()
+	{
+		Long[] boxed = tiles.keySet().toArray(new Long[0]);
+		long[] keys = new long[boxed.length];
+		for(int t = 0; t < keys.length; t++)
+		{
+			keys[t] = boxed[t];
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+	
+	/**
+	 * Rescales the allocated tiles and the background.
+	 */
+	@Override
+	protected void rescale(double min, double multi)
+	{
+		//multiply all values by multi.
+		for(double[] tile : tiles.values())
+		{
+			for(int index = 0; index < tile.length; index++)
+			{
+				tile[index] = (tile[index] - min) * multi;
+			}
+		}
+		background = (background - min) * multi;
+	}
+	
+	/**
+	 * Normalizes the allocated tiles using the given pool, a tile per task, and the background.
+	 * Gives exactly the same values as normalize().
+	 * Note a tracked range only covers written values, not the background.
+	 */
+	@Override
+	public void normalize(ThreadPool pool)
+	{
+		final long[] keys = keys();
+		double[] range;
+		if(isTrackingRange())
+		{
+			range = getTrackedRange();
+		}else
+		{
+			final double[] mins = new double[keys.length];
+			final double[] maxs = new double[keys.length];
+			//find min and max of each tile
+			pool.addGlobalTask(new ArrayTask(0, keys.length - 1)
+			{
+				@Override
+				public void run(int t)
+				{
+					tileRange(keys[t], mins, maxs, t);
+				}
+			});
+			pool.startAndWait();
+			range = combineRanges(mins, maxs);
+		}
+		
+		//find multi
+		final double min = range[0];
+		final double multi = 1 / (range[1] - min);
+		
+		//multiply all values by multi.
+		pool.addGlobalTask(new ArrayTask(0, keys.length - 1)
+		{
+			@Override
+			public void run(int t)
+			{
+				double[] tile = tiles.get(keys[t]);
+				for(int index = 0; index < tile.length; index++)
+				{
+					tile[index] = (tile[index] - min) * multi;
+				}
+			}
+		});
+		pool.startAndWait();
+		background = (background - min) * multi;
+		rescaleTrackedRange(min, range[1], multi);
+	}
+	
+	/**
+	 * Finds the stats of the allocated tiles only, one tile after the other,
+	 * with the positions that still read as the background counted as one more part.
+	 */
+	@Override
+	public Stats stats()
+	{
+		long[] keys = keys();
+		Stats[] partials = new Stats[keys.length + 1];
+		for(int t = 0; t < keys.length; t++)
+		{
+			partials[t] = tileStats(keys[t]);
+		}
+		partials[keys.length] = backgroundStats();
+		return Stats.merge(partials);
+	}
+	
+	/**
+	 * Finds the stats of the allocated tiles using the given pool, a tile per task.
+	 * Gives exactly the same result as stats().
+	 */
+	@Override
+	public Stats stats(ThreadPool pool)
+	{
+		final long[] keys = keys();
+		final Stats[] partials = new Stats[keys.length + 1];
+		pool.addGlobalTask(new ArrayTask(0, keys.length - 1)
+		{
+			@Override
+			public void run(int t)
+			{
+				partials[t] = tileStats(keys[t]);
+			}
+		});
+		pool.startAndWait();
+		partials[keys.length] = backgroundStats();
+		return Stats.merge(partials);
+	}
+	
+	/**
+	 * Returns the stats of the values in the bounds of the tile with the given key.
+	 */
+	private Stats tileStats(long key)
+	{
+		long count = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double mean = 0;
+		//sum of squared differences from the mean
+		double m2 = 0;
+		double[] tile = tiles.get(key);
+		int tileW = tileWidth(key, getWidth());
+		int tileH = tileHeight(key, getHeight());
+		for(int j = 0; j < tileH; j++)
+		{
+			for(int index = j << TILE_SHIFT, end = index + tileW; index < end; index++)
+			{
+				double value = tile[index];
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				//Welford's running mean and variance
+				count++;
+				double delta = value - mean;
+				mean += delta / count;
+				m2 += delta * (value - mean);
+			}
+		}
+		return new Stats(count, min, max, mean, m2);
+	}
+	
+	/**
+	 * Returns the stats of the positions that read as the background.
+	 */
+	private Stats backgroundStats()
+	{
+		long count = backgroundCount();
+		return new Stats(count, background, background, background, 0);
+	}
+	
+	/**
+	 * Fills this NoiseArray with the given value by dropping all tiles and setting the background.
+	 * @param value The value to fill with.
+	 */
+	@Override
+	protected void fill(double value)
+	{
+		dropTiles();
+		background = value;
+	}
+	
+	/**
+	 * Returns the number of columns of the tile with the given key within the given width.
+	 */
+	private static int tileWidth(long key, int w)
+	{
+		int tileX = (int)(key >> 32);
+		return Math.min(TILE_SIZE, w - (tileX << TILE_SHIFT));
+	}
+	
+	/**
+	 * Returns the number of rows of the tile with the given key within the given height.
+	 */
+	private static int tileHeight(long key, int h)
+	{
+		int tileY = (int)key;
+		return Math.min(TILE_SIZE, h - (tileY << TILE_SHIFT));
+	}
+	
+	/**
+	 * Returns the key of the given tile.
+	 * @param tileX The x index of the tile.
+	 * @param tileY The y index of the tile.
+	 * @return The key.
+	 */
+	private static long key(int tileX, int tileY)
+	{
+		return ((long)tileX << 32) | (tileY & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * A tile, its key and the generation it was looked up in. Only used by one thread.
+	 */
+	private static final class Tile
+	{
+		private long key;
+		private double[] data;
+		private int generation;
+	}
+}
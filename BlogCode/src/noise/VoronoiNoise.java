@@ -16,9 +16,9 @@ import noise.voronoi.DistanceFunction;
 public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNoise
 {
 	/**
-	 * The NoiseGenerator instance for this VoronoiNoise.
+	 * The furthest number of cells away a dot can be checked.
 	 */
-	private NoiseGenerator gen = new NoiseGenerator();
+	private static final int MAX_CHECK_DIS = 2;
 	/**
 	 * The distance function to use for the Voronoi generation.
 	 */
@@ -27,6 +27,10 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 	 * The combine function to use for the Voronoi generation.
 	 */
 	public CombineFunction comFunc;
+	/**
+	 * The sorted distances of the current thread's sample, reused between samples.
+	 */
+	private final ThreadLocal<double[]> sampleDistances = new ThreadLocal<double[]>();
 	
 	/**
 	 * Creates a new VoronoiNoise with the given distance function and combine function.
@@ -56,7 +60,9 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 	@Override
 	public PeriodicNoise copy()
 	{
-		return new VoronoiNoise(seed, periodX, periodY, disFunc, comFunc);
+		PeriodicNoise copy = new VoronoiNoise(seed, periodX, periodY, disFunc, comFunc);
+		copy.fastHash = fastHash;
+		return copy;
 	}
 
 	@Override
@@ -73,74 +79,185 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 		{
 			for(int j = 0; j < dots[0].length; j++)
 			{
-				dots[i][j][0] = gen.noise_gen(seed, i, j, 0);//set x
-				dots[i][j][1] = gen.noise_gen(seed, i, j, 1);//set y
+				dots[i][j][0] = value(i, j, 0);//set x
+				dots[i][j][1] = value(i, j, 1);//set y
 			}
 		}
 		
+		//every value gets written, so a tracked range can start over
+		noise.resetRange();
 		//for all columns.
 		for(int x = 0; x < noise.getWidth(); x++)
 		{
-			//get x cell
-			int cellX = x / periodX;
-			//get fractional x part
-			double fracX = (x % periodX) / (double)periodX;
+			fillColumn(noise, dots, 0, 0, 0, x);
+		}
+		
+		//always need to normalize Voronoi noise
+		noise.normalize();
+	}
+	
+	@Override
+	public void fillArray(NoiseArray noise, long x, long y)
+	{
+		//the dot array covers every cell the array touches, plus every neighbour that may be checked
+		long cellX = Util.floorDiv(x, periodX) - MAX_CHECK_DIS;
+		long cellY = Util.floorDiv(y, periodY) - MAX_CHECK_DIS;
+		int dotsX = (int)(Util.floorDiv(x + noise.getWidth() - 1, periodX) - cellX) + MAX_CHECK_DIS + 1;
+		int dotsY = (int)(Util.floorDiv(y + noise.getHeight() - 1, periodY) - cellY) + MAX_CHECK_DIS + 1;
+		
+		//create dot array
+		double[][][] dots = new double[dotsX][dotsY][2];
+		for(int i = 0; i < dots.length; i++)
+		{
+			for(int j = 0; j < dots[0].length; j++)
+			{
+				dots[i][j][0] = NoiseGenerator.noise(seed, cellX + i, cellY + j, 0);//set x
+				dots[i][j][1] = NoiseGenerator.noise(seed, cellX + i, cellY + j, 1);//set y
+			}
+		}
+		
+		//for all columns.
+		for(int i = 0; i < noise.getWidth(); i++)
+		{
+			fillColumn(noise, dots, x, y, MAX_CHECK_DIS, i);
+		}
+		
+		//not normalized, normalizing each fill on its own would break the seams between them
+	}
+	
+	/**
+	 * Returns the value world filling gives at the given coords, not normalized.
+	 */
+	@Override
+	protected double sample(long s, int px, int py, double x, double y)
+	{
+		//get the cell and fractional parts
+		long cellX = cell(x, px);
+		long cellY = cell(y, py);
+		double fracX = frac(x, cellX, px);
+		double fracY = frac(y, cellY, py);
+		
+		//reuse this thread's minDis array
+		double[] minDis = sampleDistances.get();
+		if(minDis == null || minDis.length != comFunc.getNumDistances())
+		{
+			minDis = new double[comFunc.getNumDistances()];
+			sampleDistances.set(minDis);
+		}
+		//init values to infinity
+		for(int i = 0; i < minDis.length; i++)
+		{
+			minDis[i] = Double.POSITIVE_INFINITY;
+		}
+		
+		//the distance we will check for points
+		int checkDis = 1;
+		//Mink. and anything with F3 needs more range
+		if(disFunc == DistanceFunction.Minkowski0_5 || minDis.length > 2)
+		{
+			checkDis = MAX_CHECK_DIS;
+		}
+		
+		//check cell and neighbors, with the same dots as the world dot array
+		for(int i = -checkDis; i <= checkDis; i++)
+		{
+			for(int j = -checkDis; j <= checkDis; j++)
+			{
+				double dotX = NoiseGenerator.noise(s, cellX + i, cellY + j, 0);
+				double dotY = NoiseGenerator.noise(s, cellX + i, cellY + j, 1);
+				insert(minDis, disFunc.distanceFunc(fracX, fracY, dotX + i, dotY + j));
+			}
+		}
+		
+		//perform the Euclid sqrts
+		if(disFunc == DistanceFunction.Euclid)
+		{
+			for(int i = 0; i < minDis.length; i++)
+			{
+				minDis[i] = Math.sqrt(minDis[i]);
+			}
+		}
+		//get value from distances
+		return comFunc.combineFunc(minDis);
+	}
+	
+	/**
+	 * Fills a column of the given array with voronoi noise.
+	 * @param noise The array to fill.
+	 * @param dots The dot of each cell.
+	 * @param originX The world x coord of the array's first column.
+	 * @param originY The world y coord of the array's first row.
+	 * @param offset The position in dots of the cell containing the world origin.
+	 * @param x The column to fill.
+	 */
+	private void fillColumn(NoiseArray noise, double[][][] dots, long originX, long originY, int offset, int x)
+	{
+		//find the world x
+		long worldX = originX + x;
+		//get x cell
+		int cellX = (int)(Util.floorDiv(worldX, periodX) - Util.floorDiv(originX, periodX)) + offset;
+		//get fractional x part
+		double fracX = Util.floorMod(worldX, periodX) / (double)periodX;
+		//find the first cell's y
+		long firstY = Util.floorDiv(originY, periodY) - offset;
+		
+		//the column's values, set all at once
+		double[] column = new double[noise.getHeight()];
+		
+		//for all rows
+		for(int y = 0; y < column.length; y++)
+		{
+			//find the world y
+			long worldY = originY + y;
+			//get y cell
+			int cellY = (int)(Util.floorDiv(worldY, periodY) - firstY);
+			//get fractional y part
+			double fracY = Util.floorMod(worldY, periodY) / (double)periodY;
 			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
+			//create minDis array
+			double[] minDis = new double[comFunc.getNumDistances()];
+			//init values to infinity
+			for(int i = 0; i < minDis.length; i++)
 			{
-				//get y cell
-				int cellY = y / periodY;
-				//get fractional y part
-				double fracY = (y % periodY) / (double)periodY;
-				
-				//create minDis array
-				double[] minDis = new double[comFunc.getNumDistances()];
-				//init values to infinity
-				for(int i = 0; i < minDis.length; i++)
-				{
-					minDis[i] = Double.POSITIVE_INFINITY;
-				}
-				
-				//the distance we will check for points
-				int checkDis = 1;
-				//Mink. and anything with F3 needs more range
-				if(disFunc == DistanceFunction.Minkowski0_5 || minDis.length > 2)
-				{
-					checkDis = 2;
-				}
-				
-				//check cell and neighbors
-				for(int i = -checkDis; i <= checkDis; i++)
+				minDis[i] = Double.POSITIVE_INFINITY;
+			}
+			
+			//the distance we will check for points
+			int checkDis = 1;
+			//Mink. and anything with F3 needs more range
+			if(disFunc == DistanceFunction.Minkowski0_5 || minDis.length > 2)
+			{
+				checkDis = MAX_CHECK_DIS;
+			}
+			
+			//check cell and neighbors
+			for(int i = -checkDis; i <= checkDis; i++)
+			{
+				for(int j = -checkDis; j <= checkDis; j++)
 				{
-					for(int j = -checkDis; j <= checkDis; j++)
-					{
-						//get dot for current cell
-						double[] dot = dots[Util.wrap(cellX + i, 0, dots.length - 1)][Util.wrap(cellY + j, 0, dots[0].length - 1)];
-						//get distance to src point
-						double disTo = disFunc.distanceFunc(fracX, fracY, dot[0] + i, dot[1] + j);
-						//insert it into the sorted distance array
-						insert(minDis, disTo);
-					}
+					//get dot for current cell
+					double[] dot = dots[Util.wrap(cellX + i, 0, dots.length - 1)][Util.wrap(cellY + j, 0, dots[0].length - 1)];
+					//get distance to src point
+					double disTo = disFunc.distanceFunc(fracX, fracY, dot[0] + i, dot[1] + j);
+					//insert it into the sorted distance array
+					insert(minDis, disTo);
 				}
-				
-				//perform the Euclid sqrts
-				if(disFunc == DistanceFunction.Euclid)
+			}
+			
+			//perform the Euclid sqrts
+			if(disFunc == DistanceFunction.Euclid)
+			{
+				for(int i = 0; i < minDis.length; i++)
 				{
-					for(int i = 0; i < minDis.length; i++)
-					{
-						minDis[i] = Math.sqrt(minDis[i]);
-					}
+					minDis[i] = Math.sqrt(minDis[i]);
 				}
-				//get value from distances
-				double value = comFunc.combineFunc(minDis);
-				//set value
-				noise.setRelative(x, y, value);
 			}
+			//get value from distances
+			double value = comFunc.combineFunc(minDis);
+			//set value
+			column[y] = value;
 		}
-		
-		//always need to normalize Voronoi noise
-		noise.normalize();
+		noise.setColumn(x, column);
 	}
 	
 	/**
@@ -179,11 +296,13 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 		pool.addGlobalTask(new DotColumnTask(dots, 0, dots.length - 1));
 		pool.startAndWait();
 		
+		//every value gets written, so a tracked range can start over
+		noise.resetRange();
 		pool.addGlobalTask(new ColumnTask(noise, dots, 0, noise.getWidth() - 1));
 		pool.startAndWait();
 		
 		//always need to normalize Voronoi noise
-		noise.normalize();
+		noise.normalize(pool);
 	}
 	
 	/**
@@ -204,62 +323,7 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 		@Override
 		public void run(int x)
 		{
-			//get x cell
-			int cellX = x / periodX;
-			//get fractional x part
-			double fracX = (x % periodX) / (double)periodX;
-			
-			//for all rows
-			for(int y = 0; y < noise.getHeight(); y++)
-			{
-				//get y cell
-				int cellY = y / periodY;
-				//get fractional y part
-				double fracY = (y % periodY) / (double)periodY;
-				
-				//create minDis array
-				double[] minDis = new double[comFunc.getNumDistances()];
-				//init values to infinity
-				for(int i = 0; i < minDis.length; i++)
-				{
-					minDis[i] = Double.POSITIVE_INFINITY;
-				}
-				
-				//the distance we will check for points
-				int checkDis = 1;
-				//Mink. and anything with F3 needs more range
-				if(disFunc == DistanceFunction.Minkowski0_5 || minDis.length > 2)
-				{
-					checkDis = 2;
-				}
-				
-				//check cell and neighbors
-				for(int i = -checkDis; i <= checkDis; i++)
-				{
-					for(int j = -checkDis; j <= checkDis; j++)
-					{
-						//get dot for current cell
-						double[] dot = dots[Util.wrap(cellX + i, 0, dots.length - 1)][Util.wrap(cellY + j, 0, dots[0].length - 1)];
-						//get distance to src point
-						double disTo = disFunc.distanceFunc(fracX, fracY, dot[0] + i, dot[1] + j);
-						//insert it into the sorted distance array
-						insert(minDis, disTo);
-					}
-				}
-				
-				//perform the Euclid sqrts
-				if(disFunc == DistanceFunction.Euclid)
-				{
-					for(int i = 0; i < minDis.length; i++)
-					{
-						minDis[i] = Math.sqrt(minDis[i]);
-					}
-				}
-				//get value from distances
-				double value = comFunc.combineFunc(minDis);
-				//set value
-				noise.setRelative(x, y, value);
-			}
+			fillColumn(noise, dots, 0, 0, 0, x);
 		}
 	}
 	
@@ -278,8 +342,8 @@ public final class VoronoiNoise extends PeriodicNoise implements MultiThreadedNo
 		{
 			for(int j = 0; j < dots[0].length; j++)
 			{
-				dots[i][j][0] = gen.noise_gen(seed, i, j, 0);//set x
-				dots[i][j][1] = gen.noise_gen(seed, i, j, 1);//set y
+				dots[i][j][0] = value(i, j, 0);//set x
+				dots[i][j][1] = value(i, j, 1);//set y
 			}
 		}
 	}
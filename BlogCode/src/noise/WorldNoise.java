@@ -0,0 +1,39 @@
+package noise;
+
+/**
+ * 
+ * Represents a NoiseGenerator that can be sampled at world coords, so separately filled chunks line up exactly.
+ * 
+ * @author F4113nb34st
+ *
+ */
+public interface WorldNoise
+{
+	/**
+	 * Fills the given NoiseArray with this noise sampled at the array's own bounds, so (minX, minY) is world (minX, minY).
+	 * Arrays filled this way line up exactly with their neighbours, no matter which thread or process filled them,
+	 * so a map can be generated as independent chunks (for example NoiseArrayViews of one big array).
+	 * @param noise The array to fill.
+	 */
+	public void fillWorld(NoiseArray noise);
+	
+	/**
+	 * Returns this noise at the given world coords, without filling an array.
+	 * At whole coords this equals (==) the value fillWorld stores at that position of an array with amplitude 1 and offset 0.
+	 * Does not allocate, so it is cheap enough for scattered lookups.
+	 * @param x The world x coord.
+	 * @param y The world y coord.
+	 * @return The noise value.
+	 */
+	public double sample(double x, double y);
+	
+	/**
+	 * Samples this noise at a batch of world coords, dst[off + i] = sample(xs[off + i], ys[off + i]) for i from 0 to len - 1.
+	 * @param xs The world x coords.
+	 * @param ys The world y coords.
+	 * @param dst The array to store the values in.
+	 * @param off The index of the first coord and value.
+	 * @param len The number of values to sample.
+	 */
+	public void sample(double[] xs, double[] ys, double[] dst, int off, int len);
+}
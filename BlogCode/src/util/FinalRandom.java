@@ -165,6 +165,67 @@ public class FinalRandom implements java.io.Serializable
         return (int)(nextseed >>> (48 - bits));
     }
 
+    /**
+     * Jumps the state of this random number generator ahead by {@code n}
+     * steps, leaving it exactly where {@code n} calls to {@link #next}
+     * would have, in O(log n) time. Each {@code nextInt}, {@code nextFloat}
+     * or {@code nextBoolean} is one step; each {@code nextLong} or
+     * {@code nextDouble} is two. A stored {@code nextGaussian} value is
+     * left untouched.
+     *
+     * <p>The LCG has a full period of 2<sup>48</sup>, so {@code n} is taken
+     * modulo 2<sup>48</sup> and a negative {@code n} jumps backwards.
+     *
+     * <p>This lets one logical stream be split across workers or world
+     * chunks, each starting at its own offset without drawing and
+     * discarding the values before it.
+     *
+     * @param n the number of steps to jump
+     */
+    public void advance(long n) 
+    {
+        long oldseed, nextseed;
+        AtomicLong seed = this.seed;
+        do 
+        {
+            oldseed = seed.get();
+            nextseed = jump(oldseed, n);
+        } while (!seed.compareAndSet(oldseed, nextseed));
+    }
+
+    /**
+     * Returns the given LCG state jumped ahead by {@code n} steps.
+     * Composes the step {@code s -> s * multiplier + addend} with itself
+     * by repeated squaring, so it takes O(log n) multiplies.
+     *
+     * @param state the state to jump from
+     * @param n the number of steps, taken modulo 2<sup>48</sup>
+     * @return the jumped state
+     */
+    static long jump(long state, long n) 
+    {
+        n &= mask;
+        // the accumulated jump, starts as the identity
+        long accMult = 1;
+        long accPlus = 0;
+        // the jump of 2^i steps for the current bit i
+        long curMult = multiplier;
+        long curPlus = addend;
+        while (n != 0) 
+        {
+            if ((n & 1) != 0) 
+            {
+                accMult *= curMult;
+                accPlus = accPlus * curMult + curPlus;
+            }
+            // doubling: applying the 2^i jump twice
+            curPlus = (curMult + 1) * curPlus;
+            curMult *= curMult;
+            n >>>= 1;
+        }
+        return (accMult * state + accPlus) & mask;
+    }
+
     /**
      * Generates random bytes and places them into a user-supplied
      * byte array.  The number of random bytes produced is equal to
@@ -433,6 +494,100 @@ public class FinalRandom implements java.io.Serializable
         return (((long)(next(26)) << 27) + next(27)) / (double)(1L << 53);
     }
 
+    /**
+     * Fills {@code len} elements of {@code dst}, starting at {@code off},
+     * with the same values {@code len} calls to {@link #nextDouble} would
+     * return. The LCG runs on a local variable and the new state is
+     * published with a single CAS, instead of one per value. If another
+     * thread draws in the meantime the batch is recomputed, so the values
+     * are always one contiguous run of the sequence.
+     *
+     * @param dst the array to fill
+     * @param off the index of the first value
+     * @param len the number of values
+     * @throws IndexOutOfBoundsException if the range is outside of {@code dst}
+     */
+    public void nextDoubles(double[] dst, int off, int len) 
+    {
+        checkRange(dst.length, off, len);
+        long oldseed, nextseed;
+        AtomicLong seed = this.seed;
+        do 
+        {
+            oldseed = seed.get();
+            nextseed = oldseed;
+            for (int i = off, end = off + len; i < end; i++) 
+            {
+                nextseed = (nextseed * multiplier + addend) & mask;
+                long high = nextseed >>> (48 - 26);
+                nextseed = (nextseed * multiplier + addend) & mask;
+                long low = nextseed >>> (48 - 27);
+                dst[i] = ((high << 27) + low) / (double)(1L << 53);
+            }
+        } while (!seed.compareAndSet(oldseed, nextseed));
+    }
+
+    /**
+     * Fills {@code len} elements of {@code dst}, starting at {@code off},
+     * with the same values {@code len} calls to {@link #nextInt(int)}
+     * with the given bound would return. Like {@link #nextDoubles}, the
+     * new state is published with a single CAS.
+     *
+     * @param dst the array to fill
+     * @param off the index of the first value
+     * @param len the number of values
+     * @param bound the bound on the values. Must be positive.
+     * @throws IndexOutOfBoundsException if the range is outside of {@code dst}
+     * @exception IllegalArgumentException if bound is not positive
+     */
+    public void nextInts(int[] dst, int off, int len, int bound) 
+    {
+        if (bound <= 0)
+        {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        checkRange(dst.length, off, len);
+        boolean powerOf2 = (bound & -bound) == bound;
+        long oldseed, nextseed;
+        AtomicLong seed = this.seed;
+        do 
+        {
+            oldseed = seed.get();
+            nextseed = oldseed;
+            for (int i = off, end = off + len; i < end; i++) 
+            {
+                nextseed = (nextseed * multiplier + addend) & mask;
+                int bits = (int)(nextseed >>> (48 - 31));
+                if (powerOf2)
+                {
+                    dst[i] = (int)((bound * (long)bits) >> 31);
+                    continue;
+                }
+                int val = bits % bound;
+                // same rejection as nextInt(int)
+                while (bits - val + (bound - 1) < 0) 
+                {
+                    nextseed = (nextseed * multiplier + addend) & mask;
+                    bits = (int)(nextseed >>> (48 - 31));
+                    val = bits % bound;
+                }
+                dst[i] = val;
+            }
+        } while (!seed.compareAndSet(oldseed, nextseed));
+    }
+
+    /**
+     * Throws if {@code off} and {@code len} do not describe a range
+     * within an array of the given length.
+     */
+    private static void checkRange(int length, int off, int len) 
+    {
+        if (off < 0 || len < 0 || off > length - len)
+        {
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + length);
+        }
+    }
+
     private double nextNextGaussian;
     private boolean haveNextNextGaussian = false;
 
@@ -61,6 +61,39 @@ public class Util
 			value += ((-value / dif) + 1) * dif;//find exact amount needed to bring over 0
 		}
 		value %= dif;
-		return value;
+		return value + min;
+	}
+	
+	/**
+	 * Divides the given long by the given int, rounding towards negative infinity.
+	 * @param value The value to divide.
+	 * @param div The divisor, must be positive.
+	 * @return The floored quotient.
+	 */
+	public static final long floorDiv(long value, int div)
+	{
+		long quot = value / div;
+		//division rounds towards 0, so step down for negative remainders
+		if((value % div) < 0)
+		{
+			quot--;
+		}
+		return quot;
+	}
+	
+	/**
+	 * Returns the remainder of the given long divided by the given int, always between 0 and div - 1.
+	 * @param value The value to divide.
+	 * @param div The divisor, must be positive.
+	 * @return The floored remainder.
+	 */
+	public static final int floorMod(long value, int div)
+	{
+		int mod = (int)(value % div);
+		if(mod < 0)
+		{
+			mod += div;
+		}
+		return mod;
 	}
 }
@@ -1,5 +1,7 @@
 package util.concurrent;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 
  * Class that represents a task that will be executed simultaneously on multiple threads over an array.
@@ -14,9 +16,9 @@ public abstract class ArrayTask implements Runnable
 	 */
 	private final int max;
 	/**
-	 * The current index. Incremented on getX() calls.
+	 * The next index. Incremented on getX() calls.
 	 */
-	private volatile int index;
+	private final AtomicInteger index;
 	
 	/**
 	 * Creates a new ArrayTask with the given min and max values.
@@ -26,20 +28,20 @@ public abstract class ArrayTask implements Runnable
 	public ArrayTask(int mi, int ma)
 	{
 		max = ma;
-		//since index is incremented before returned, start one less than min so first value is min
-		index = mi - 1;
+		index = new AtomicInteger(mi);
 	}
 	
 	/**
 	 * Gets the next index value.
 	 * @return The index value or -1 if we are done.
 	 */
-	private synchronized int getX()
+	private int getX()
 	{
-		index++;
-		if(index <= max)
+		//lock-free so threads don't queue up on every column
+		int x = index.getAndIncrement();
+		if(x <= max)
 		{
-			return index;
+			return x;
 		}else
 		{
 			return -1;
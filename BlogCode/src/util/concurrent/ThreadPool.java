@@ -98,10 +98,10 @@ public class ThreadPool
 	{
 		//start
 		start();
-		//wait til all tasks done
+		//wait til all tasks done and every thread is back in hibernation
 		synchronized(waitLock)
 		{
-			while(moreTasks())
+			while(moreTasks() || numHibernating < poolSize())
 			{
 				try
 				{
@@ -125,8 +125,10 @@ public class ThreadPool
 			//if more tasks, don't hibernate silly
 			while(!moreTasks())
 			{
+				//increase hibernating count
+				numHibernating++;
 				//if the last thread to finish
-				if(numHibernating == poolSize() - 1)
+				if(numHibernating == poolSize())
 				{
 					//notify the sleeping main thread
 					synchronized(waitLock)
@@ -134,8 +136,6 @@ public class ThreadPool
 						waitLock.notifyAll();
 					}
 				}
-				//increase hibernating count
-				numHibernating++;
 				try
 				{
 					//hibernate